@@ -0,0 +1,29 @@
+package tetris.bench;
+
+import java.util.Random;
+
+import tetris.core.Board;
+
+/**
+ * 基准测试用的棋盘填充工具
+ */
+final class BoardFixtures {
+    private BoardFixtures() {
+    }
+
+    /**
+     * 在棋盘底部填充若干行随机方块，每行至少留一个空洞，保证不会被消除
+     */
+    static void fill(Board board, int rows, long seed) {
+        Random random = new Random(seed);
+        int width = board.getWidth();
+        int[] mask = new int[1];
+        for (int i = 0; i < rows; i++) {
+            int bits = random.nextInt(1 << width) & ~(1 << random.nextInt(width));
+            mask[0] = bits;
+            board.lock(mask, 0, board.getHeight() - 1 - i, random.nextInt(7) + 1);
+        }
+        // lock 记录的脏行只用于消行，这里不希望影响第一次测量
+        board.clearFullRows(new int[board.getHeight()]);
+    }
+}
@@ -0,0 +1,99 @@
+package tetris.bench;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import tetris.core.Board;
+import tetris.core.ShapeTable;
+import tetris.core.Tetromino;
+
+/**
+ * 碰撞检测：在不同填充程度的棋盘上，对某个类型和旋转状态的方块扫描所有位置。
+ * legacyIntArray 复现了位棋盘之前 int[][] + ArrayList&lt;Point&gt; 的写法，作为对照。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionBenchmark {
+    @Param({"0", "8", "14"})
+    public int fillRows;
+
+    @Param({"1", "2", "3", "4", "5", "6", "7"})
+    public int type;
+
+    @Param({"0", "1", "2", "3"})
+    public int rotation;
+
+    private Board board;
+    private Tetromino tetromino;
+    private int[][] legacyBoard;
+    private ArrayList<Point> legacyBlocks;
+
+    @Setup
+    public void setUp() {
+        board = new Board(10, 20);
+        BoardFixtures.fill(board, fillRows, 42);
+        tetromino = new Tetromino(type, -2, -1);
+        for (int i = 0; i < rotation; i++) {
+            tetromino.rotate();
+        }
+
+        legacyBoard = new int[board.getHeight()][board.getWidth()];
+        for (int y = 0; y < board.getHeight(); y++) {
+            for (int x = 0; x < board.getWidth(); x++) {
+                legacyBoard[y][x] = board.getCell(x, y);
+            }
+        }
+        legacyBlocks = new ArrayList<>();
+        int shape = ShapeTable.index(type, rotation);
+        for (int i = 0; i < ShapeTable.CELL_COUNT; i++) {
+            legacyBlocks.add(new Point(ShapeTable.cellX(shape, i), ShapeTable.cellY(shape, i)));
+        }
+    }
+
+    @Benchmark
+    public int bitboard() {
+        int hits = 0;
+        Tetromino t = tetromino;
+        for (int y = -1; y <= board.getHeight(); y++) {
+            for (int x = -2; x <= board.getWidth(); x++) {
+                t.move(x - t.getX(), y - t.getY());
+                if (t.collidesWithBoard(board)) {
+                    hits++;
+                }
+            }
+        }
+        return hits;
+    }
+
+    @Benchmark
+    public int legacyIntArray() {
+        int hits = 0;
+        int width = legacyBoard[0].length, height = legacyBoard.length;
+        for (int y = -1; y <= height; y++) {
+            for (int x = -2; x <= width; x++) {
+                if (legacyCollides(x, y, width, height)) {
+                    hits++;
+                }
+            }
+        }
+        return hits;
+    }
+
+    private boolean legacyCollides(int x, int y, int boardWidth, int boardHeight) {
+        for (Point p : legacyBlocks) {
+            int newX = x + p.x;
+            int newY = y + p.y;
+            if (newX < 0 || newX >= boardWidth || newY >= boardHeight || (newY >= 0 && legacyBoard[newY][newX] != 0)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,63 @@
+package tetris.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import tetris.core.Board;
+import tetris.core.Tetromino;
+
+/**
+ * 直接落底：测量单个方块从顶部落到底的查找开销。
+ * dropLoop 是逐格检测碰撞的旧做法，skyline 是 GameEngine 现在使用的列高度查找。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HardDropBenchmark {
+    @Param({"0", "8", "14"})
+    public int fillRows;
+
+    @Param({"1", "2", "3", "4", "5", "6", "7"})
+    public int type;
+
+    @Param({"0", "1", "2", "3"})
+    public int rotation;
+
+    private Board board;
+    private Tetromino tetromino;
+    private int column;
+
+    @Setup
+    public void setUp() {
+        board = new Board(10, 20);
+        BoardFixtures.fill(board, fillRows, 42);
+        tetromino = new Tetromino(type, 0, 1);
+        for (int i = 0; i < rotation; i++) {
+            tetromino.rotate();
+        }
+    }
+
+    @Benchmark
+    public int dropLoop() {
+        Tetromino t = tetromino;
+        column = (column + 1) % (board.getWidth() - 3);
+        t.move(column - t.getX(), 1 - t.getY());
+        while (!t.collidesWithBoard(board)) {
+            t.move(0, 1);
+        }
+        t.move(0, -1);
+        return t.getY();
+    }
+
+    @Benchmark
+    public int skyline() {
+        Tetromino t = tetromino;
+        column = (column + 1) % (board.getWidth() - 3);
+        t.move(column - t.getX(), 1 - t.getY());
+        return t.getY() + t.dropDistance(board);
+    }
+}
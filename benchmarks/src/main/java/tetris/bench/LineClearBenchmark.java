@@ -0,0 +1,51 @@
+package tetris.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import tetris.core.Board;
+
+/**
+ * 消行：在填充好的棋盘上方锁定若干整行再消除，结束后棋盘恢复原状，可以反复测量。
+ * 巨型棋盘（4000 行）的耗时应与标准棋盘相同，只取决于活动区域。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LineClearBenchmark {
+    @Param({"0", "8", "16"})
+    public int fillRows;
+
+    @Param({"1", "2", "3", "4"})
+    public int lines;
+
+    @Param({"20", "4000"})
+    public int height;
+
+    private Board board;
+    private int[] fullRows;
+    private int[] cleared;
+    private int lockY;
+
+    @Setup
+    public void setUp() {
+        board = new Board(10, height);
+        BoardFixtures.fill(board, fillRows, 42);
+        fullRows = new int[lines];
+        for (int i = 0; i < lines; i++) {
+            fullRows[i] = (1 << board.getWidth()) - 1;
+        }
+        cleared = new int[board.getHeight()];
+        lockY = board.getHeight() - fillRows - lines;
+    }
+
+    @Benchmark
+    public int lockAndClear() {
+        board.lock(fullRows, 0, lockY, 1);
+        return board.clearFullRows(cleared);
+    }
+}
@@ -0,0 +1,87 @@
+package tetris.bench;
+
+import java.awt.CardLayout;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.JComponent;
+import javax.swing.JFrame;
+import javax.swing.JPanel;
+
+import org.openjdk.jmh.annotations.*;
+
+import tetris.core.GameConfig;
+import tetris.core.GameEngine;
+import tetris.core.HighScoreStore;
+
+/**
+ * 离屏绘制：把 GamePanel 整个画到 BufferedImage 上，在无显示环境下运行。
+ * GamePanel 位于默认包，只能在 Setup 中通过反射创建。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class PaintBenchmark {
+    @Param({"0", "8", "14"})
+    public int fillRows;
+
+    // true 为像素渲染，false 为 Graphics2D 逐格绘制
+    @Param({"false", "true"})
+    public boolean raster;
+
+    private JComponent panel;
+    private BufferedImage image;
+    private Graphics2D graphics;
+
+    @Setup
+    public void setUp() throws Exception {
+        JPanel mainPanel = new JPanel(new CardLayout());
+        Class<?> panelClass = Class.forName("GamePanel");
+        Constructor<?> constructor = panelClass.getDeclaredConstructor(JFrame.class, JPanel.class,
+                HighScoreStore.class);
+        constructor.setAccessible(true);
+        HighScoreStore highScores = new HighScoreStore(Files.createTempFile("highscores", ".txt"),
+                GameConfig.HIGH_SCORE_COUNT);
+        panel = (JComponent) constructor.newInstance(null, mainPanel, highScores);
+        panel.setSize(panel.getPreferredSize());
+
+        Method startGame = panelClass.getDeclaredMethod("startGame");
+        startGame.setAccessible(true);
+        startGame.invoke(panel);
+        // 暂停以停止重力定时器，避免 EDT 与测量线程同时修改状态
+        Method togglePause = panelClass.getDeclaredMethod("togglePause");
+        togglePause.setAccessible(true);
+        togglePause.invoke(panel);
+
+        Method setRaster = panelClass.getDeclaredMethod("setRasterRendering", boolean.class);
+        setRaster.setAccessible(true);
+        setRaster.invoke(panel, raster);
+
+        Field engineField = panelClass.getDeclaredField("engine");
+        engineField.setAccessible(true);
+        GameEngine engine = (GameEngine) engineField.get(panel);
+        BoardFixtures.fill(engine.getBoard(), fillRows, 42);
+
+        image = new BufferedImage(panel.getWidth(), panel.getHeight(), BufferedImage.TYPE_INT_RGB);
+        graphics = image.createGraphics();
+    }
+
+    @TearDown
+    public void tearDown() {
+        graphics.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage paint() {
+        panel.paint(graphics);
+        return image;
+    }
+}
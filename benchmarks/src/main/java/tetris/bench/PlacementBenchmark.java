@@ -0,0 +1,36 @@
+package tetris.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import tetris.core.GameEngine;
+
+/**
+ * 每秒放置数：GameEngine 一次完整的放置（落底、锁定、消行、生成下一个方块）。
+ * 整局游戏只做直接落底，游戏结束后用下一个种子重开。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlacementBenchmark {
+    private GameEngine engine;
+    private long seed;
+
+    @Setup
+    public void setUp() {
+        engine = new GameEngine(seed);
+    }
+
+    @Benchmark
+    public int hardDrop() {
+        if (engine.isGameOver()) {
+            engine.reset(++seed);
+        }
+        engine.step(GameEngine.Action.HARD_DROP);
+        return engine.getPiecesPlaced();
+    }
+}
@@ -3,6 +3,31 @@ import java.awt.*;
 import java.awt.event.*;
 import java.util.*;
 import java.io.*;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferStrategy;
+import java.awt.image.BufferedImage;
+import tetris.ai.AutoPlayer;
+import tetris.core.Board;
+import tetris.core.GameConfig;
+import tetris.core.GameEngine;
+import tetris.core.GameLoop;
+import tetris.core.GameRules;
+import tetris.core.HighScoreStore;
+import tetris.core.InputQueue;
+import tetris.core.Tetromino;
+import tetris.metrics.GameMetrics;
+import tetris.metrics.GameOverEvent;
+import tetris.metrics.GravityTickEvent;
+import tetris.metrics.PaintEvent;
+import tetris.net.VersusMatch;
+import tetris.net.VersusSession;
+import tetris.replay.ReplayRecorder;
+import tetris.util.ColorUtils;
+import tetris.util.RasterBoardRenderer;
+import tetris.util.TileAtlas;
+import tetris.util.Timeline;
 
 public class Tetris {
     public static void main(String[] args) {
@@ -16,135 +41,41 @@ public class Tetris {
     private static void createAndShowGUI() {
         final JFrame frame = new JFrame("俄罗斯方块");
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        frame.setResizable(false);
 
         JPanel mainPanel = new JPanel(new CardLayout());
+        // 高分榜在后台加载，游戏和高分面板共用
+        HighScoreStore highScores = new HighScoreStore(new File(GameConfig.HIGH_SCORE_FILE).toPath(),
+                GameConfig.HIGH_SCORE_COUNT);
         StartPanel startPanel = new StartPanel(frame, mainPanel);
-        GamePanel gamePanel = new GamePanel(frame, mainPanel);
-        HighScorePanel highScorePanel = new HighScorePanel(frame, mainPanel);
+        GamePanel gamePanel = new GamePanel(frame, mainPanel, highScores);
+        HighScorePanel highScorePanel = new HighScorePanel(frame, mainPanel, highScores);
+        VersusPanel versusPanel = new VersusPanel(frame, mainPanel);
 
         mainPanel.add(startPanel, "Start");
         mainPanel.add(gamePanel, "Game");
         mainPanel.add(highScorePanel, "HighScore");
+        mainPanel.add(versusPanel, "Versus");
 
-        JMenuBar menuBar = new MenuBar(frame, gamePanel, mainPanel);
+        // 性能指标可以用 JConsole 等工具查看
+        gamePanel.getMetrics().register();
+
+        JMenuBar menuBar = new MenuBar(frame, gamePanel, versusPanel, mainPanel);
         frame.setJMenuBar(menuBar);
 
         frame.add(mainPanel);
         frame.pack();
+        // 屏幕比默认窗口大得多（没有系统缩放的高分屏）时按整数倍放大，布局随窗口大小计算
+        Rectangle screen = GraphicsEnvironment.getLocalGraphicsEnvironment().getMaximumWindowBounds();
+        int zoom = (int) (screen.height * 0.85 / frame.getHeight());
+        if (zoom >= 2) {
+            Dimension size = gamePanel.getPreferredSize();
+            frame.setSize(frame.getWidth() + size.width * (zoom - 1), frame.getHeight() + size.height * (zoom - 1));
+        }
         frame.setLocationRelativeTo(null);
         frame.setVisible(true);
     }
 }
 
-/**
- * 游戏配置常量
- */
-class GameConfig {
-    // 游戏区域配置
-    public static final int BOARD_WIDTH = 10;
-    public static final int BOARD_HEIGHT = 20;
-    public static final int CELL_SIZE = 30;
-    public static final int SIDEBAR_WIDTH = 120;
-    
-    // 游戏机制配置
-    public static final int BASE_SPEED = 800; // 基础下落速度（毫秒）
-    public static final double SPEED_FACTOR = 1.2; // 速度增加的指数系数 - 降低，使难度增加更平缓
-    public static final double SPEED_MULTIPLIER = 40.0; // 速度增加的乘数 - 降低
-    public static final boolean USE_COUNTDOWN_TIMER = false; // 修改：禁用倒计时，改为无限制模式
-    public static final int BASE_COUNTDOWN = 120; // 修改：每关基础倒计时增加到120秒
-    public static final int COUNTDOWN_DECREASE = 0; // 修改：关卡提升不减少时间
-    
-    // 积分系统配置
-    public static final int BASE_SCORE = 100; // 基础分数
-    public static final double COMBO_MULTIPLIER = 0.2; // 连击加成系数
-    public static final int LINES_PER_LEVEL = 10; // 每消除10行升一级
-    
-    /**
-     * 根据关卡计算下落速度
-     */
-    public static int calculateSpeed(int level) {
-        return (int) Math.max(100, BASE_SPEED - Math.pow(level, SPEED_FACTOR) * SPEED_MULTIPLIER);
-    }
-    
-    /**
-     * 根据消除行数和连击次数计算分数
-     */
-    public static int calculateScore(int lines, int combo, int level) {
-        if (lines <= 0) return 0;
-        
-        // 基础分数基于消除行数（单行=100，双行=200，三行=400，四行=800）
-        int baseScore = BASE_SCORE * (int)Math.pow(2, lines-1);
-        
-        // 连击加成
-        double comboMultiplier = 1.0 + (combo * COMBO_MULTIPLIER);
-        
-        // 关卡系数
-        double levelMultiplier = 1.0 + (level * 0.5);
-        
-        return (int)(baseScore * comboMultiplier * levelMultiplier);
-    }
-}
-
-/**
- * 颜色工具类
- */
-class ColorUtils {
-    /**
-     * 将HSV颜色转换为RGB颜色
-     * @param h 色相 (0-360)
-     * @param s 饱和度 (0.0-1.0)
-     * @param v 亮度 (0.0-1.0)
-     * @return RGB颜色
-     */
-    public static Color fromHSV(float h, float s, float v) {
-        // 确保h在0-360范围内
-        h = h % 360;
-        if (h < 0) h += 360;
-        
-        // 将H转换为对应的RGB分量
-        float c = v * s;
-        float x = c * (1 - Math.abs((h / 60) % 2 - 1));
-        float m = v - c;
-        
-        float r, g, b;
-        
-        if (h < 60) {
-            r = c; g = x; b = 0;
-        } else if (h < 120) {
-            r = x; g = c; b = 0;
-        } else if (h < 180) {
-            r = 0; g = c; b = x;
-        } else if (h < 240) {
-            r = 0; g = x; b = c;
-        } else if (h < 300) {
-            r = x; g = 0; b = c;
-        } else {
-            r = c; g = 0; b = x;
-        }
-        
-        return new Color(r + m, g + m, b + m);
-    }
-    
-    /**
-     * 生成7种互补色系的颜色，用于方块
-     * @return 7种颜色数组
-     */
-    public static Color[] generateTetrominoColors() {
-        Color[] colors = new Color[7];
-        float saturation = 0.8f;
-        float value = 0.7f;
-        
-        // 以约51度间隔生成7种不同色相的颜色
-        for (int i = 0; i < 7; i++) {
-            float hue = i * (360f / 7);
-            colors[i] = fromHSV(hue, saturation, value);
-        }
-        
-        return colors;
-    }
-}
-
 // 开始界面面板
 class StartPanel extends JPanel {
     public StartPanel(final JFrame frame, final JPanel mainPanel) {
@@ -173,16 +104,41 @@ class StartPanel extends JPanel {
         JButton levelsButton = new JButton("选择关卡");
         levelsButton.addActionListener(new ActionListener() {
             public void actionPerformed(ActionEvent e) {
-                String[] options = {"简单", "中等", "困难"};
+                String[] options = {"简单", "中等", "困难", "高速", "20G"};
                 int choice = JOptionPane.showOptionDialog(frame, "选择难度", "选择关卡",
                         JOptionPane.DEFAULT_OPTION, JOptionPane.PLAIN_MESSAGE, null, options, options[0]);
+                if (choice < 0) return;
                 GamePanel gamePanel = (GamePanel) mainPanel.getComponent(1);
-                gamePanel.setLevel(choice + 1);
+                // 高速模式去掉 100 毫秒的下落间隔下限，20G 模式方块出现即落底
+                if (choice == 3) {
+                    gamePanel.setRules(GameRules.HIGH_SPEED);
+                } else if (choice == 4) {
+                    gamePanel.setRules(GameRules.TWENTY_G);
+                } else {
+                    gamePanel.setRules(GameRules.DEFAULT);
+                    gamePanel.setLevel(choice + 1);
+                }
             }
         });
         gbc.gridy = 2;
         add(levelsButton, gbc);
 
+        JButton boardButton = new JButton("选择棋盘");
+        boardButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                // 巨型棋盘的视口随堆叠滚动，方块在堆叠顶部以上出生
+                String[] options = {"标准 10×20", "宽 24×40", "巨型 48×4000"};
+                int[][] sizes = {{GameConfig.BOARD_WIDTH, GameConfig.BOARD_HEIGHT}, {24, 40}, {48, 4000}};
+                int choice = JOptionPane.showOptionDialog(frame, "选择棋盘尺寸", "选择棋盘",
+                        JOptionPane.DEFAULT_OPTION, JOptionPane.PLAIN_MESSAGE, null, options, options[0]);
+                if (choice < 0) return;
+                GamePanel gamePanel = (GamePanel) mainPanel.getComponent(1);
+                gamePanel.setBoardSize(sizes[choice][0], sizes[choice][1]);
+            }
+        });
+        gbc.gridy = 3;
+        add(boardButton, gbc);
+
         JButton highScoreButton = new JButton("查看高分");
         highScoreButton.addActionListener(new ActionListener() {
             public void actionPerformed(ActionEvent e) {
@@ -192,7 +148,7 @@ class StartPanel extends JPanel {
                 highScorePanel.updateScores();
             }
         });
-        gbc.gridy = 3;
+        gbc.gridy = 4;
         add(highScoreButton, gbc);
 
         JButton exitButton = new JButton("退出");
@@ -201,92 +157,222 @@ class StartPanel extends JPanel {
                 System.exit(0);
             }
         });
-        gbc.gridy = 4;
+        gbc.gridy = 5;
         add(exitButton, gbc);
     }
 }
 
-// 游戏面板
+// 游戏面板：GameEngine 的视图和输入适配层
 class GamePanel extends JPanel {
-    // 使用GameConfig中的常量
-    private static final int BOARD_WIDTH = GameConfig.BOARD_WIDTH;
-    private static final int BOARD_HEIGHT = GameConfig.BOARD_HEIGHT;
-    private static final int CELL_SIZE = GameConfig.CELL_SIZE;
     private static final int SIDEBAR_WIDTH = GameConfig.SIDEBAR_WIDTH;
+    // 视口的像素高度固定为标准棋盘的高度，更高的棋盘在视口内滚动
+    private static final int VIEW_HEIGHT = GameConfig.BOARD_HEIGHT * GameConfig.CELL_SIZE;
+    // 视口底部至少比堆叠顶部多显示的行数
+    private static final int VIEW_MARGIN_ROWS = 4;
 
-    private int[][] board;
-    private Tetromino currentTetromino;
-    private boolean isPaused;
-    private int score;
-    private int level;
-    private int linesCleared;  // 新增：已消除行数统计
-    private int comboCount;    // 新增：连击计数
+    private static final int PREVIEW_CELL_SIZE = 20;
+    // 窗口很小时布局的最小缩放比例
+    private static final double MIN_UI_SCALE = 0.25;
+
+    // 侧边栏使用的字体、颜色和操作说明（按默认窗口大小，实际绘制时按布局缩放）
+    private static final Font INFO_FONT = new Font("Arial", Font.BOLD, 14);
+    private static final Font HELP_FONT = new Font("Arial", Font.PLAIN, 12);
+    private static final Color SIDEBAR_BACKGROUND = new Color(40, 40, 50);
+    private static final Color PREVIEW_BACKGROUND = new Color(30, 30, 40);
+    private static final String[] HELP_LINES = {
+        "操作说明:", "↑: 旋转", "←→: 移动", "↓: 加速下落", "空格: 直接落底", "P: 暂停游戏", "F3: 性能浮层"
+    };
+    // 性能浮层：文字每 OVERLAY_REFRESH_NANOS 才重新排版一次，其余帧直接贴缓存图像
+    private static final Font OVERLAY_FONT = new Font("Monospaced", Font.PLAIN, 11);
+    private static final Color OVERLAY_BACKGROUND = new Color(0, 0, 0, 170);
+    private static final long OVERLAY_REFRESH_NANOS = 250000000L;
+    private static final int OVERLAY_WIDTH = 280, OVERLAY_HEIGHT = 92;
+    private static final Color BOARD_BACKGROUND = new Color(20, 20, 30);
+    // 动画时间轴的轨道
+    private static final int ANIM_ROW_CLEAR = 0, ANIM_LEVEL_UP = 1, ANIM_GAME_OVER = 2;
+
+    // 使用HSV颜色模型生成的颜色
+    private Color[] palette = ColorUtils.generateTetrominoColors();
+    // 棋盘和预览用的预绘制方块贴图，格子大小或调色板变化时重建
+    private TileAtlas tileAtlas;
+    private TileAtlas previewAtlas;
+
+    // 棋盘尺寸在运行时选择，下一局开始时生效；宽棋盘缩小格子，高于视口的棋盘只绘制视口内的行
+    private int columns = GameConfig.BOARD_WIDTH;
+    private int boardRows = GameConfig.BOARD_HEIGHT;
+    // 默认窗口大小下的格子大小和视口行数，决定首选尺寸
+    private int baseCellSize = GameConfig.CELL_SIZE;
+    private int baseViewRows = GameConfig.BOARD_HEIGHT;
+    // 当前布局，单位为设备像素：由组件大小和显示缩放算出，棋盘和侧边栏按 1:1 的像素绘制，
+    // 所有缓存图像都按这个尺寸渲染，大小变化时各重建一次
+    private int cellSize = GameConfig.CELL_SIZE;
+    private int viewRows = GameConfig.BOARD_HEIGHT; // 视口显示的行数
+    private int viewTop; // 视口第一行对应的棋盘行
+    private double uiScale = 1; // 侧边栏相对默认窗口的缩放
+    private int originX; // 内容在水平方向居中后的左边距
+    private int sidebarWidth = SIDEBAR_WIDTH;
+    private int previewCellSize = PREVIEW_CELL_SIZE;
+    private int deviceHeight = VIEW_HEIGHT;
+    private Font infoFont = INFO_FONT;
+    private Font helpFont = HELP_FONT;
+    // 上次计算布局时的组件大小（逻辑像素）和显示缩放，layoutScale 为 0 表示还没有计算过
+    private int layoutWidth, layoutHeight;
+    private double layoutScale;
+    private volatile GameEngine engine; // 游戏开始前为 null
+    private volatile boolean isPaused;
+    // 主动渲染模式下循环线程与事件分发线程共同访问引擎，用这把锁串行化
+    private final Object engineLock = new Object();
+    // 主动渲染模式：独立的循环线程和使用 BufferStrategy 的画布，被动模式下为 null
+    private GameLoop gameLoop;
+    private Canvas canvas;
     private javax.swing.Timer gameTimer;
+    // 被动模式下按真实时间补帧：上一帧的时间戳，单次最多补 MAX_CATCH_UP_FRAMES 帧
+    private static final long FRAME_NANOS = 1000000000L / GameConfig.FRAME_RATE;
+    private static final int MAX_CATCH_UP_FRAMES = 8;
+    private long lastFrameNanos;
+    private GameRules rules = GameRules.DEFAULT; // 下一局使用的速度和计分规则
     private int timeLeft;
     private javax.swing.Timer countdownTimer;
     private JFrame frame;
     private JPanel mainPanel;
-    private Tetromino nextTetromino;
+    // 背景、网格和已锁定方块的缓存图层，只在棋盘内容变化时重建
+    private BufferedImage boardLayer;
+    private Board boardLayerSource;
+    private int boardLayerVersion;
+    private int boardLayerViewTop;
+    // 最近一次绘制时的棋盘和版本，两种渲染方式都会更新，用来判断是否需要重绘整个棋盘
+    private Board paintedBoard;
+    private int paintedBoardVersion;
+    // 像素渲染：棋盘、影子和活动方块都写入渲染器的图像，只更新变化的格子
+    private volatile boolean rasterRendering = GameConfig.RASTER_RENDERING;
+    private RasterBoardRenderer rasterRenderer;
+    // 脏区域跟踪：上次请求重绘的活动方块区域，以及侧边栏上次绘制的数值
+    private final Rectangle pieceBounds = new Rectangle();
+    private final Rectangle scratchBounds = new Rectangle();
+    private final Rectangle clipBounds = new Rectangle();
+    private int shownScore = -1, shownLevel = -1, shownLines = -1, shownCombo = -1;
+    private int shownNextType = -1, shownTimeLeft = -1;
+    // 侧边栏缓存：数值区域的图像和静态文字的字形
+    private BufferedImage statsImage;
+    private FontRenderContext sidebarFrc;
+    private GlyphVector nextLabelGlyphs;
+    private GlyphVector[] helpGlyphs;
+    // 键盘输入：事件分发线程把带时间戳的按下/松开命令放入无锁队列，
+    // 主动渲染模式下由循环线程取出，被动模式下当场取出；按键自动重复由引擎的 DAS/ARR 处理
+    private static final int RELEASE_FLAG = 0x100;
+    private static final GameEngine.Action[] ACTIONS = GameEngine.Action.values();
+    private final InputQueue inputQueue = new InputQueue(64);
+    private final boolean[] keysHeld = new boolean[ACTIONS.length];
+    private final KeyListener keyHandler = new KeyAdapter() {
+        public void keyPressed(KeyEvent e) {
+            handleKey(e, true);
+        }
+
+        public void keyReleased(KeyEvent e) {
+            handleKey(e, false);
+        }
+    };
+    private javax.swing.Timer repeatTimer; // 被动模式下按住按键时驱动自动重复
+    // 输入到画面呈现的延迟：最早一个尚未呈现的按键时间戳，0 表示没有
+    private volatile long pendingInputNanos;
+    // 运行时性能指标，始终记录；已计入指标的本局方块数和行数
+    private final GameMetrics metrics = new GameMetrics();
+    private int countedPieces, countedLines;
+    private volatile boolean showMetrics;
+    private BufferedImage overlayImage;
+    private long overlayRenderedNanos;
+    // 消行、升级和游戏结束动画：按真实时间插值，由绘制线程每帧画出，不阻塞模拟和输入；
+    // 被动模式下由 animationTimer 在动画播放期间逐帧请求重绘
+    private final Timeline timeline = new Timeline(3);
+    private javax.swing.Timer animationTimer;
+    private int[] clearRows = new int[4]; // 正在播放的消行动画消除的行（消除前，从上到下）
+    private int clearCount;
+    private Board clearBoard;
+    private int clearBoardVersion;
+    private BufferedImage levelUpImage;
+    private int levelUpImageLevel;
+    private BufferedImage gameOverImage;
+    private ReplayRecorder recorder; // 当前一局的回放录制，未录制时为 null
+    private boolean recordReplays = GameConfig.RECORD_REPLAYS; // 新开的一局是否录制回放
+    private final HighScoreStore highScores;
+    // 演示模式：由自动玩家按固定间隔逐步操作，未开启时为 null
+    private AutoPlayer autoPlayer;
+    private javax.swing.Timer autoPlayTimer;
 
-    public GamePanel(JFrame frame, JPanel mainPanel) {
+    public GamePanel(JFrame frame, JPanel mainPanel, HighScoreStore highScores) {
         this.frame = frame;
         this.mainPanel = mainPanel;
-        setPreferredSize(new Dimension(BOARD_WIDTH * CELL_SIZE + SIDEBAR_WIDTH, BOARD_HEIGHT * CELL_SIZE));
-        board = new int[BOARD_HEIGHT][BOARD_WIDTH];
+        this.highScores = highScores;
+        setPreferredSize(new Dimension(columns * baseCellSize + SIDEBAR_WIDTH, baseViewRows * baseCellSize));
         isPaused = false;
-        score = 0;
-        level = 1;
-        linesCleared = 0;
-        comboCount = 0;
 
-        // 初始化棋盘
-        for(int i = 0; i < BOARD_HEIGHT; i++) {
-            for(int j = 0; j < BOARD_WIDTH; j++) {
-                board[i][j] = 0;
+        // 设置键盘监听
+        addKeyListener(keyHandler);
+        setFocusable(true);
+
+        repeatTimer = new javax.swing.Timer(0, new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                pollInput();
             }
-        }
+        });
+        repeatTimer.setRepeats(false);
 
-        // 设置键盘监听
-        addKeyListener(new KeyAdapter() {
-            public void keyPressed(KeyEvent e) {
-                handleKeyPress(e);
+        autoPlayTimer = new javax.swing.Timer(GameConfig.AUTO_PLAY_DELAY_MS, new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                if (!isPaused && engine != null && autoPlayer != null) {
+                    synchronized (engineLock) {
+                        if (engine.isGameOver()) return;
+                        int oldLevel = engine.getLevel();
+                        boolean locked = engine.step(autoPlayer.nextAction(engine));
+                        afterUpdate(oldLevel, locked);
+                    }
+                    repaintChanges();
+                }
+            }
+        });
+
+        animationTimer = new javax.swing.Timer((int) (FRAME_NANOS / 1000000L), new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                // 最后一帧画完后停止
+                if (!timeline.isAnimating(System.nanoTime())) {
+                    animationTimer.stop();
+                }
+                repaintBoard();
             }
         });
-        setFocusable(true);
 
         // 设置游戏定时器
-        gameTimer = new javax.swing.Timer(GameConfig.calculateSpeed(level), new ActionListener() {
+        gameTimer = new javax.swing.Timer((int) (FRAME_NANOS / 1000000L), new ActionListener() {
             public void actionPerformed(ActionEvent e) {
-                if (!isPaused) {
-                    if (currentTetromino != null) {
-                        currentTetromino.move(0, 1);
-                        if (currentTetromino.collidesWithBoard(board, BOARD_WIDTH, BOARD_HEIGHT)) {
-                            currentTetromino.move(0, -1);
-                            currentTetromino.lockToBoard(board);
-                            clearCompleteRows();
-                            generateNewTetromino();
-                        }
-                        repaint();
-                    } else {
-                        gameOver();
-                    }
+                if (!isPaused && engine != null) {
+                    runFrames(System.nanoTime());
+                    repaintChanges();
                 }
             }
         });
     }
 
     public void startGame() {
-        score = 0;
-        level = 1;
-        linesCleared = 0;
-        comboCount = 0;
-        
-        // 初始化棋盘
-        for(int i = 0; i < BOARD_HEIGHT; i++) {
-            for(int j = 0; j < BOARD_WIDTH; j++) {
-                board[i][j] = 0;
+        synchronized (engineLock) {
+            if (engine == null || engine.getBoard().getWidth() != columns
+                    || engine.getBoard().getHeight() != boardRows) {
+                engine = new GameEngine(columns, boardRows, System.nanoTime());
+                engine.setRules(rules);
+            } else {
+                engine.setRules(rules);
+                engine.reset(System.nanoTime());
+            }
+            lastFrameNanos = System.nanoTime();
+            countedPieces = 0;
+            countedLines = 0;
+            timeline.cancelAll();
+            stopRecording();
+            if (recordReplays) {
+                startRecording();
             }
         }
+        // 游戏结束浮层显示期间不处理方向键，上一局按住的键松开时没有记录
+        Arrays.fill(keysHeld, false);
         
         // 初始化倒计时 - 修改为使用配置参数
         timeLeft = GameConfig.BASE_COUNTDOWN;
@@ -301,203 +387,453 @@ class GamePanel extends JPanel {
                     if (timeLeft <= 0) {
                         gameOver();
                     }
-                    repaint();
+                    repaintChanges();
                 }
             });
             countdownTimer.start();
         }
         
-        // 生成方块
-        nextTetromino = new Tetromino(new Random().nextInt(7)+1, 0, 0);
-        generateNewTetromino();
-        gameTimer.setDelay(GameConfig.calculateSpeed(level));
-        gameTimer.start();
-        requestFocusInWindow();
-    }
-    
-    // 生成下一个方块
-    private void generateNewTetromino() {
-        if(nextTetromino == null) {
-            nextTetromino = new Tetromino(new Random().nextInt(7)+1, 0, 0);
-        }
-        currentTetromino = nextTetromino;
-        currentTetromino.move(BOARD_WIDTH/2 - 2 - currentTetromino.getX(), 0 - currentTetromino.getY());
-        nextTetromino = new Tetromino(new Random().nextInt(7)+1, 0, 0);
-        if (currentTetromino.collidesWithBoard(board, BOARD_WIDTH, BOARD_HEIGHT)) {
+        if (gameLoop == null) {
+            gameTimer.start();
+            requestFocusInWindow();
+        } else {
+            canvas.requestFocusInWindow();
+        }
+        repaint();
+        if (engine.isGameOver()) {
             gameOver();
         }
     }
 
-    private void handleKeyPress(KeyEvent e) {
-        if (currentTetromino == null || isPaused) return;
-
+    private void handleKey(KeyEvent e, boolean pressed) {
+        long now = System.nanoTime();
         int key = e.getKeyCode();
+        if (key == KeyEvent.VK_F3) {
+            if (pressed) {
+                setMetricsOverlay(!showMetrics);
+            }
+            return;
+        }
+        if (engine == null || engine.isGameOver()) {
+            if (pressed && (key == KeyEvent.VK_ENTER || key == KeyEvent.VK_ESCAPE)
+                    && timeline.isActive(ANIM_GAME_OVER, now)) {
+                leaveGameOver();
+            }
+            return;
+        }
+
+        if (key == KeyEvent.VK_P) {
+            if (pressed) {
+                togglePause();
+                repaint();
+            }
+            return;
+        }
+
+        GameEngine.Action action;
         switch(key) {
             case KeyEvent.VK_LEFT:
-                currentTetromino.move(-1, 0);
-                if (currentTetromino.collidesWithBoard(board, BOARD_WIDTH, BOARD_HEIGHT)) {
-                    currentTetromino.move(1, 0);
-                }
+                action = GameEngine.Action.LEFT;
                 break;
             case KeyEvent.VK_RIGHT:
-                currentTetromino.move(1, 0);
-                if (currentTetromino.collidesWithBoard(board, BOARD_WIDTH, BOARD_HEIGHT)) {
-                    currentTetromino.move(-1, 0);
-                }
+                action = GameEngine.Action.RIGHT;
                 break;
             case KeyEvent.VK_DOWN:
-                currentTetromino.move(0, 1);
-                if (currentTetromino.collidesWithBoard(board, BOARD_WIDTH, BOARD_HEIGHT)) {
-                    currentTetromino.move(0, -1);
-                    currentTetromino.lockToBoard(board);
-                    clearCompleteRows();
-                    generateNewTetromino();
-                }
+                action = GameEngine.Action.SOFT_DROP;
                 break;
             case KeyEvent.VK_UP:
-                currentTetromino.rotate();
-                if (currentTetromino.collidesWithBoard(board, BOARD_WIDTH, BOARD_HEIGHT)) {
-                    currentTetromino.rotateBack();
-                }
+                action = GameEngine.Action.ROTATE;
                 break;
             case KeyEvent.VK_SPACE:
-                while (!currentTetromino.collidesWithBoard(board, BOARD_WIDTH, BOARD_HEIGHT)) {
-                    currentTetromino.move(0, 1);
-                }
-                currentTetromino.move(0, -1);
-                currentTetromino.lockToBoard(board);
-                clearCompleteRows();
-                generateNewTetromino();
-                break;
-            case KeyEvent.VK_P:
-                togglePause();
+                action = GameEngine.Action.HARD_DROP;
                 break;
             default:
-                break;
+                return;
+        }
+        // 忽略系统按键重复产生的连续按下事件，重复节奏由引擎决定
+        if (keysHeld[action.ordinal()] == pressed) return;
+        keysHeld[action.ordinal()] = pressed;
+
+        inputQueue.offer(now, pressed ? action.ordinal() : action.ordinal() | RELEASE_FLAG);
+        if (gameLoop != null) {
+            gameLoop.wakeUp();
+        } else {
+            pollInput();
         }
-        repaint();
     }
 
-    private void clearCompleteRows() {
-        ArrayList<Integer> rowsToClear = new ArrayList<>();
-        
-        // 检测完整行
-        for(int i = 0; i < BOARD_HEIGHT; i++) {
-            boolean isComplete = true;
-            for(int j = 0; j < BOARD_WIDTH; j++) {
-                if (board[i][j] == 0) {
-                    isComplete = false;
-                    break;
-                }
-            }
-            if (isComplete) {
-                rowsToClear.add(i);
-            }
+    // 被动模式下在事件分发线程上处理输入，并安排下一次自动重复
+    private void pollInput() {
+        if (gameLoop != null || engine == null) return;
+
+        long next;
+        synchronized (engineLock) {
+            drainInput(System.nanoTime());
+            next = isPaused ? Long.MAX_VALUE : engine.getNextRepeatNanos();
         }
-        
-        // 如果有行可消除
-        if (!rowsToClear.isEmpty()) {
-            comboCount++; // 增加连击计数
-            int lines = rowsToClear.size();
-            linesCleared += lines;
-            
-            // 计算得分，使用新的积分系统
-            int earnedScore = GameConfig.calculateScore(lines, comboCount, level);
-            score += earnedScore;
-            
-            // 动画效果：闪烁消除行
-            flashRows(rowsToClear);
-            
-            // 移除完整行
-            for(int row : rowsToClear) {
-                for(int j = 0; j < BOARD_WIDTH; j++) {
-                    board[row][j] = 0;
-                }
-                for(int i = row; i > 0; i--) {
-                    for(int j = 0; j < BOARD_WIDTH; j++) {
-                        board[i][j] = board[i-1][j];
-                    }
-                }
-                for(int j = 0; j < BOARD_WIDTH; j++) {
-                    board[0][j] = 0;
+        repaintChanges();
+        if (next == Long.MAX_VALUE) {
+            repeatTimer.stop();
+        } else {
+            repeatTimer.setInitialDelay((int) Math.max(1, (next - System.nanoTime() + 999999) / 1000000));
+            repeatTimer.restart();
+        }
+    }
+
+    // 执行队列中的命令和截至 now 的自动重复，调用方需持有 engineLock
+    private void drainInput(long now) {
+        GameEngine e = engine;
+        if (e == null || e.isGameOver()) {
+            inputQueue.clear();
+            return;
+        }
+        int oldLevel = e.getLevel();
+        boolean locked = false;
+        int code;
+        while ((code = inputQueue.poll()) >= 0) {
+            long time = inputQueue.getPolledTime();
+            GameEngine.Action action = ACTIONS[code & ~RELEASE_FLAG];
+            if ((code & RELEASE_FLAG) != 0) {
+                e.release(action, time);
+            } else if (!isPaused) {
+                locked |= e.press(action, time);
+                if (pendingInputNanos == 0) {
+                    pendingInputNanos = time;
                 }
             }
-            
-            checkLevelUp();
-        } else {
-            comboCount = 0; // 重置连击计数
         }
+        if (!isPaused) {
+            locked |= e.updateInput(now);
+        }
+        afterUpdate(oldLevel, locked);
     }
-    
-    // 简单的行闪烁动画
-    private void flashRows(ArrayList<Integer> rows) {
-        // 实际项目中可以添加闪烁动画效果
+
+    // 一帧呈现完成后记录输入到画面的延迟
+    private void recordInputLatency() {
+        long pending = pendingInputNanos;
+        if (pending != 0) {
+            pendingInputNanos = 0;
+            metrics.recordInputLatency(System.nanoTime() - pending);
+        }
+    }
+
+    public GameMetrics getMetrics() {
+        return metrics;
+    }
+
+    // 显示或隐藏性能浮层
+    public void setMetricsOverlay(boolean show) {
+        showMetrics = show;
+        overlayRenderedNanos = 0;
+        repaint(0, 0, OVERLAY_WIDTH, OVERLAY_HEIGHT);
+    }
+
+    public boolean isMetricsOverlay() {
+        return showMetrics;
+    }
+
+    // 切换像素渲染和 Graphics2D 逐格绘制
+    public void setRasterRendering(boolean raster) {
+        rasterRendering = raster;
         repaint();
     }
 
-    private void checkLevelUp() {
-        // 新的等级系统：每消除10行升一级
-        int newLevel = linesCleared / GameConfig.LINES_PER_LEVEL + 1;
-        if (newLevel > level) {
-            level = newLevel;
-            gameTimer.setDelay(GameConfig.calculateSpeed(level));
-            
+    public boolean isRasterRendering() {
+        return rasterRendering;
+    }
+
+    // 从下一局开始是否录制回放
+    public void setRecordReplays(boolean record) {
+        recordReplays = record;
+    }
+
+    public boolean isRecordReplays() {
+        return recordReplays;
+    }
+
+    // 引擎状态推进后，处理消行动画、升级和游戏结束
+    private void afterUpdate(int oldLevel, boolean locked) {
+        // 按引擎的累计值计数，一次处理多个锁定时也不会漏记
+        if (locked) {
+            metrics.addPieces(engine.getPiecesPlaced() - countedPieces, engine.getLinesCleared() - countedLines);
+            countedPieces = engine.getPiecesPlaced();
+            countedLines = engine.getLinesCleared();
+        }
+        if (locked && engine.getLastClearedCount() > 0) {
+            // 动画效果：闪烁消除行
+            flashRows(engine.getLastClearedRows(), engine.getLastClearedCount());
+        }
+        if (engine.getLevel() != oldLevel) {
+            startAnimation(ANIM_LEVEL_UP, GameConfig.LEVEL_UP_MS, false);
             // 修改：只有在使用倒计时的情况下才重置倒计时
             if (GameConfig.USE_COUNTDOWN_TIMER) {
                 // 重置倒计时，但每关减少的时间不能太多
-                timeLeft = Math.max(60, GameConfig.BASE_COUNTDOWN - (level-1) * GameConfig.COUNTDOWN_DECREASE);
+                timeLeft = Math.max(60, GameConfig.BASE_COUNTDOWN - (engine.getLevel()-1) * GameConfig.COUNTDOWN_DECREASE);
+            }
+        }
+        if (engine.isGameOver()) {
+            if (SwingUtilities.isEventDispatchThread()) {
+                gameOver();
+            } else {
+                // 主动渲染模式下由循环线程推进，对话框必须回到事件分发线程
+                SwingUtilities.invokeLater(new Runnable() {
+                    public void run() {
+                        gameOver();
+                    }
+                });
+            }
+        }
+    }
+    
+    // 行闪烁和下落动画，调用方需持有 engineLock
+    private void flashRows(int[] rows, int count) {
+        if (clearRows.length < count) {
+            clearRows = new int[count];
+        }
+        System.arraycopy(rows, 0, clearRows, 0, count);
+        clearCount = count;
+        clearBoard = engine.getBoard();
+        clearBoardVersion = clearBoard.getVersion();
+        startAnimation(ANIM_ROW_CLEAR, GameConfig.ROW_FLASH_MS + GameConfig.ROW_COLLAPSE_MS, false);
+    }
+
+    private void startAnimation(int track, int millis, boolean hold) {
+        timeline.start(track, System.nanoTime(), millis * 1000000L, hold);
+        if (gameLoop == null) {
+            animationTimer.start(); // 主动渲染模式下循环线程本来就逐帧绘制
+        }
+    }
+
+    /**
+     * 只重绘发生变化的区域：棋盘内容变化时重绘整个棋盘，否则只重绘活动方块（含影子）
+     * 新旧包围盒的并集；侧边栏只在显示的数值或下一个方块变化时重绘。
+     */
+    private void repaintChanges() {
+        if (gameLoop != null) {
+            return; // 主动渲染模式下由循环线程每帧呈现
+        }
+        if (engine == null) {
+            repaint();
+            return;
+        }
+        Board board = engine.getBoard();
+        boolean scrolled = updateViewport();
+        computePieceBounds(scratchBounds);
+        if (scrolled || board != paintedBoard || board.getVersion() != paintedBoardVersion) {
+            repaintBoard();
+        } else {
+            // RepaintManager 会把同一组件的脏区域合并为并集
+            if (!pieceBounds.isEmpty()) {
+                repaintDevice(pieceBounds.x, pieceBounds.y, pieceBounds.width, pieceBounds.height);
             }
+            if (!scratchBounds.isEmpty()) {
+                repaintDevice(scratchBounds.x, scratchBounds.y, scratchBounds.width, scratchBounds.height);
+            }
+        }
+        pieceBounds.setBounds(scratchBounds);
+        if (showMetrics && System.nanoTime() - overlayRenderedNanos >= OVERLAY_REFRESH_NANOS) {
+            repaint(0, 0, OVERLAY_WIDTH, OVERLAY_HEIGHT);
+        }
+
+        Tetromino next = engine.getNextTetromino();
+        int nextType = next != null ? next.getType() : 0;
+        if (engine.getScore() != shownScore || engine.getLevel() != shownLevel
+                || engine.getLinesCleared() != shownLines || engine.getComboCount() != shownCombo
+                || nextType != shownNextType || timeLeft != shownTimeLeft) {
+            repaintDevice(columns * cellSize + 1, 0, sidebarWidth, deviceHeight);
+        }
+    }
+
+    private void repaintBoard() {
+        repaintDevice(0, 0, columns * cellSize + 1, viewRows * cellSize + 1);
+    }
+
+    // 把相对于内容左上角的设备像素区域换算成组件坐标后请求重绘
+    private void repaintDevice(int x, int y, int width, int height) {
+        double s = layoutScale;
+        if (s == 0) {
+            repaint();
+            return;
+        }
+        int x0 = (int) Math.floor((originX + x) / s);
+        int y0 = (int) Math.floor(y / s);
+        int x1 = (int) Math.ceil((originX + x + width) / s);
+        int y1 = (int) Math.ceil((y + height) / s);
+        repaint(x0, y0, x1 - x0, y1 - y0);
+    }
+
+    // 计算活动方块及其影子所占的区域（设备像素）
+    private void computePieceBounds(Rectangle out) {
+        Tetromino t = engine.getCurrentTetromino();
+        if (t == null) {
+            out.setBounds(0, 0, 0, 0);
+            return;
+        }
+        int minX = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE;
+        int minY = Integer.MAX_VALUE, maxY = Integer.MIN_VALUE;
+        int ghostY = engine.getGhostY();
+        for (int i = 0; i < t.getCellCount(); i++) {
+            int x = t.getX() + t.getCellX(i);
+            int y = t.getY() + t.getCellY(i);
+            minX = Math.min(minX, x);
+            maxX = Math.max(maxX, x);
+            minY = Math.min(minY, Math.min(y, y - t.getY() + ghostY));
+            maxY = Math.max(maxY, Math.max(y, y - t.getY() + ghostY));
+        }
+        minX = Math.max(minX, 0);
+        minY = Math.max(minY, viewTop);
+        maxX = Math.min(maxX, columns - 1);
+        maxY = Math.min(maxY, viewTop + viewRows - 1);
+        if (minX > maxX || minY > maxY) {
+            out.setBounds(0, 0, 0, 0);
+        } else {
+            out.setBounds(minX * cellSize, (minY - viewTop) * cellSize,
+                    (maxX - minX + 1) * cellSize, (maxY - minY + 1) * cellSize);
         }
     }
     
+    // 把这一局录制到回放目录，调用方需持有 engineLock；创建目录和文件由录制的写线程完成
+    private void startRecording() {
+        File file = new File(GameConfig.REPLAY_DIR,
+                String.format("replay-%tY%<tm%<td-%<tH%<tM%<tS.trp", new Date()));
+        recorder = new ReplayRecorder(file.toPath(), engine, GameConfig.KEYFRAME_INTERVAL);
+    }
+
+    // close 只写入结束记录并通知写线程收尾，不等待文件写完，可以在持有 engineLock 的界面线程上调用
+    private void stopRecording() {
+        synchronized (engineLock) {
+            if (recorder != null) {
+                try {
+                    recorder.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                recorder = null;
+            }
+        }
+    }
+
     private void gameOver() {
+        GameOverEvent event = new GameOverEvent();
+        event.begin();
+        stopRecording();
         gameTimer.stop();
         if (countdownTimer != null && GameConfig.USE_COUNTDOWN_TIMER) {
             countdownTimer.stop();
         }
-        
-        // 添加关卡信息到游戏结束提示
-        JOptionPane.showMessageDialog(frame, 
-            "游戏结束！\n" +
-            "最终得分：" + score + "\n" +
-            "达到关卡：" + level + "\n" +
-            "消除行数：" + linesCleared, 
-            "游戏结束", JOptionPane.INFORMATION_MESSAGE);
-            
+        event.end();
+        if (event.shouldCommit()) {
+            event.score = engine.getScore();
+            event.level = engine.getLevel();
+            event.lines = engine.getLinesCleared();
+            event.pieces = engine.getPiecesPlaced();
+            event.autoPlay = autoPlayer != null;
+            event.commit();
+        }
+        if (autoPlayer != null) {
+            // 演示模式不弹出对话框也不记录高分，直接开始下一局
+            SwingUtilities.invokeLater(new Runnable() {
+                public void run() {
+                    if (autoPlayer != null) {
+                        startGame();
+                    }
+                }
+            });
+            return;
+        }
+
+        // 结果画在棋盘上的浮层里，按回车键回到开始界面；不弹出模态对话框
         saveHighScore();
+        synchronized (engineLock) {
+            gameOverImage = null;
+            timeline.cancel(ANIM_LEVEL_UP);
+            startAnimation(ANIM_GAME_OVER, GameConfig.GAME_OVER_FADE_MS, true);
+        }
+    }
+
+    // 关闭游戏结束浮层，回到开始界面
+    private void leaveGameOver() {
+        timeline.cancel(ANIM_GAME_OVER);
         CardLayout cl = (CardLayout) mainPanel.getLayout();
         cl.show(mainPanel, "Start");
     }
 
+    // 只更新内存中的榜单，文件由高分榜的后台线程写入
     private void saveHighScore() {
-        try {
-            File file = new File("highscores.txt");
-            ArrayList<Integer> scores = new ArrayList<>();
-            if (file.exists()) {
-                Scanner scanner = new Scanner(file);
-                while (scanner.hasNextInt()) {
-                    scores.add(scanner.nextInt());
-                }
-                scanner.close();
-            }
-            scores.add(score);
-            Collections.sort(scores, Collections.reverseOrder());
-            if (scores.size() > 5) {
-                scores = new ArrayList<>(scores.subList(0, 5));
+        highScores.add(engine.getScore());
+    }
+
+    public void setLevel(int level) {
+        if (engine != null) {
+            engine.setLevel(level);
+        }
+    }
+
+    // 下一局开始时生效
+    public void setRules(GameRules rules) {
+        this.rules = rules;
+    }
+
+    // 推进一个模拟帧并记录耗时，调用方需持有 engineLock
+    private void simulateFrame() {
+        GravityTickEvent event = new GravityTickEvent();
+        event.begin();
+        long start = System.nanoTime();
+        int oldLevel = engine.getLevel();
+        boolean locked = engine.frame();
+        afterUpdate(oldLevel, locked);
+        metrics.recordTick(System.nanoTime() - start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.level = oldLevel;
+            event.locked = locked;
+            event.commit();
+        }
+    }
+
+    // 按经过的真实时间执行到期的帧，定时器抖动或延迟不会改变下落速度
+    private void runFrames(long now) {
+        long due = (now - lastFrameNanos) / FRAME_NANOS;
+        if (due <= 0) {
+            return;
+        }
+        if (due > MAX_CATCH_UP_FRAMES) {
+            // 卡顿太久时丢弃积压的帧，避免一次落下很多格
+            due = MAX_CATCH_UP_FRAMES;
+            lastFrameNanos = now;
+        } else {
+            lastFrameNanos += due * FRAME_NANOS;
+        }
+        synchronized (engineLock) {
+            for (long i = 0; i < due && !engine.isGameOver(); i++) {
+                simulateFrame();
             }
-            PrintWriter writer = new PrintWriter(file);
-            for(int s : scores) {
-                writer.println(s);
+        }
+    }
+
+    /**
+     * 开启或关闭演示模式，开启时如果没有进行中的游戏就开始一局
+     */
+    public void setAutoPlay(boolean enabled) {
+        if (enabled == (autoPlayer != null)) {
+            return;
+        }
+        if (enabled) {
+            autoPlayer = new AutoPlayer();
+            CardLayout cl = (CardLayout) mainPanel.getLayout();
+            cl.show(mainPanel, "Game");
+            if (engine == null || engine.isGameOver()) {
+                startGame();
             }
-            writer.close();
-        } catch (IOException e) {
-            e.printStackTrace();
+            autoPlayTimer.start();
+        } else {
+            autoPlayTimer.stop();
+            autoPlayer = null;
         }
     }
 
-    public void setLevel(int level) {
-        this.level = level;
-        gameTimer.setDelay(GameConfig.calculateSpeed(level));
+    public boolean isAutoPlay() {
+        return autoPlayer != null;
     }
 
     public void togglePause() {
@@ -508,357 +844,709 @@ class GamePanel extends JPanel {
                 countdownTimer.stop();
             }
         } else {
-            gameTimer.start();
+            lastFrameNanos = System.nanoTime();
+            if (gameLoop == null) {
+                gameTimer.start();
+            }
             if (countdownTimer != null) {
                 countdownTimer.start();
             }
         }
     }
 
-    @Override
-    protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
-        
-        // 启用抗锯齿
-        Graphics2D g2d = (Graphics2D) g;
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        
-        // 绘制主游戏区域背景
-        g2d.setColor(new Color(20, 20, 30));
-        g2d.fillRect(0, 0, BOARD_WIDTH * CELL_SIZE, BOARD_HEIGHT * CELL_SIZE);
-        
-        // 绘制网格线
-        g2d.setColor(new Color(50, 50, 60));
-        for (int i = 0; i <= BOARD_WIDTH; i++) {
-            g2d.drawLine(i * CELL_SIZE, 0, i * CELL_SIZE, BOARD_HEIGHT * CELL_SIZE);
+    // 切换到对战等其他界面时暂停进行中的一局
+    public void pause() {
+        if (engine != null && !engine.isGameOver() && !isPaused) {
+            togglePause();
         }
-        for (int i = 0; i <= BOARD_HEIGHT; i++) {
-            g2d.drawLine(0, i * CELL_SIZE, BOARD_WIDTH * CELL_SIZE, i * CELL_SIZE);
+    }
+
+    /**
+     * 切换主动渲染模式：由独立线程按固定步长推进重力，并通过 BufferStrategy 按目标帧率呈现画面
+     */
+    public void setActiveRendering(boolean active) {
+        if (active == (gameLoop != null)) {
+            return;
         }
+        if (active) {
+            gameTimer.stop();
+            repeatTimer.stop();
+            canvas = new Canvas();
+            canvas.setIgnoreRepaint(true);
+            canvas.setFocusable(true);
+            canvas.addKeyListener(keyHandler);
+            setLayout(new BorderLayout());
+            add(canvas, BorderLayout.CENTER);
+            revalidate();
+            gameLoop = new GameLoop(new GameLoop.Listener() {
+                public void processInput() {
+                    synchronized (engineLock) {
+                        drainInput(System.nanoTime());
+                    }
+                }
 
-        // 绘制棋盘上的方块
-        for(int i = 0; i < BOARD_HEIGHT; i++) {
-            for(int j = 0; j < BOARD_WIDTH; j++) {
-                if (board[i][j] != 0) {
-                    drawBlock(g2d, j, i, getColorForType(board[i][j]));
+                public long getNextInputNanos() {
+                    GameEngine e = engine;
+                    return e != null && !isPaused ? e.getNextRepeatNanos() : Long.MAX_VALUE;
                 }
-            }
-        }
 
-        // 绘制当前方块
-        if (currentTetromino != null) {
-            for(Point p : currentTetromino.getBlocks()) {
-                int x = p.x + currentTetromino.getX();
-                int y = p.y + currentTetromino.getY();
-                if (y >= 0 && y < BOARD_HEIGHT && x >= 0 && x < BOARD_WIDTH) {
-                    drawBlock(g2d, x, y, currentTetromino.getColor());
+                public boolean isSimulating() {
+                    GameEngine e = engine;
+                    return e != null && !isPaused && !e.isGameOver();
                 }
-            }
-        }
 
-        // 绘制侧边栏
-        drawSidebar(g2d);
+                public long getStepNanos() {
+                    return FRAME_NANOS;
+                }
+
+                public void step() {
+                    synchronized (engineLock) {
+                        simulateFrame();
+                    }
+                }
+
+                public void render() {
+                    renderActiveFrame();
+                }
+            }, GameConfig.TARGET_FPS);
+            gameLoop.start();
+            canvas.requestFocusInWindow();
+        } else {
+            gameLoop.stop();
+            gameLoop = null;
+            remove(canvas);
+            canvas = null;
+            revalidate();
+            if (engine != null && !engine.isGameOver() && !isPaused) {
+                lastFrameNanos = System.nanoTime();
+                gameTimer.start();
+            }
+            requestFocusInWindow();
+            repaint();
+            pollInput();
+        }
     }
-    
-    // 获取方块类型对应的颜色
-    private Color getColorForType(int type) {
-        return Tetromino.getColorForType(type);
+
+    public boolean isActiveRendering() {
+        return gameLoop != null;
     }
-    
-    // 绘制单个方块，带有3D效果
-    private void drawBlock(Graphics2D g, int x, int y, Color color) {
-        int blockSize = CELL_SIZE - 1;
-        int xPos = x * CELL_SIZE;
-        int yPos = y * CELL_SIZE;
-        
-        // 主体填充
-        g.setColor(color);
-        g.fillRect(xPos, yPos, blockSize, blockSize);
-        
-        // 亮边（左上）
-        g.setColor(color.brighter());
-        g.drawLine(xPos, yPos, xPos + blockSize - 1, yPos); // 上边
-        g.drawLine(xPos, yPos, xPos, yPos + blockSize - 1); // 左边
-        
-        // 暗边（右下）
-        g.setColor(color.darker());
-        g.drawLine(xPos + blockSize - 1, yPos, xPos + blockSize - 1, yPos + blockSize - 1); // 右边
-        g.drawLine(xPos, yPos + blockSize - 1, xPos + blockSize - 1, yPos + blockSize - 1); // 下边
+
+    // 主动渲染模式下的循环，被动模式下为 null
+    public GameLoop getGameLoop() {
+        return gameLoop;
     }
-    
-    // 绘制侧边栏
-    private void drawSidebar(Graphics2D g) {
-        int sidebarX = BOARD_WIDTH * CELL_SIZE + 10;
-        
-        // 侧边栏背景
-        g.setColor(new Color(40, 40, 50));
-        g.fillRect(BOARD_WIDTH * CELL_SIZE + 5, 0, SIDEBAR_WIDTH, BOARD_HEIGHT * CELL_SIZE);
-        
-        // 绘制游戏信息
-        g.setFont(new Font("Arial", Font.BOLD, 14));
-        g.setColor(Color.white);
-        g.drawString("得分: " + score, sidebarX, 30);
-        g.drawString("关卡: " + level, sidebarX, 50);
-        g.drawString("行数: " + linesCleared, sidebarX, 70);
-        g.drawString("连击: " + comboCount, sidebarX, 90);
-        
-        // 只在使用倒计时时显示倒计时
-        if (GameConfig.USE_COUNTDOWN_TIMER) {
-            g.drawString("倒计时: " + timeLeft + "s", sidebarX, 110);
-            // 下一个方块预览标题在110以后
-            g.drawString("下一个:", sidebarX, 140);
-        } else {
-            // 没有倒计时，下一个方块预览标题可以上移
-            g.drawString("下一个:", sidebarX, 120);
+
+    // 在循环线程上把一帧画到画布的后备缓冲区并呈现
+    private void renderActiveFrame() {
+        Canvas c = canvas;
+        if (c == null || !c.isShowing() || c.getWidth() <= 0 || c.getHeight() <= 0) {
+            return;
         }
-        
-        // 绘制下一个方块预览
-        if(nextTetromino != null) {
-            int previewX = sidebarX + 10;
-            // 调整预览Y位置，根据是否显示倒计时
-            int previewY = GameConfig.USE_COUNTDOWN_TIMER ? 160 : 140;
-            
-            // 其余绘制代码不变...
-            int previewCellSize = 20;
-            g.setColor(new Color(30, 30, 40));
-            g.fillRect(previewX - 5, previewY - 5, 90, 90);
-            
-            for(Point p : nextTetromino.getBlocks()){
-                int blockX = previewX + p.x * previewCellSize;
-                int blockY = previewY + p.y * previewCellSize;
-                int blockSize = previewCellSize - 1;
-                Color color = nextTetromino.getColor();
-                
-                g.setColor(color);
-                g.fillRect(blockX, blockY, blockSize, blockSize);
-                g.setColor(color.brighter());
-                g.drawLine(blockX, blockY, blockX + blockSize - 1, blockY);
-                g.drawLine(blockX, blockY, blockX, blockY + blockSize - 1);
-                g.setColor(color.darker());
-                g.drawLine(blockX + blockSize - 1, blockY, blockX + blockSize - 1, blockY + blockSize - 1);
-                g.drawLine(blockX, blockY + blockSize - 1, blockX + blockSize - 1, blockY + blockSize - 1);
+        BufferStrategy strategy = c.getBufferStrategy();
+        if (strategy == null) {
+            c.createBufferStrategy(2);
+            return;
+        }
+        PaintEvent event = new PaintEvent();
+        event.begin();
+        long start = System.nanoTime();
+        do {
+            do {
+                Graphics2D g = (Graphics2D) strategy.getDrawGraphics();
+                try {
+                    g.setColor(getBackground());
+                    g.fillRect(0, 0, c.getWidth(), c.getHeight());
+                    synchronized (engineLock) {
+                        renderFrame(g, c.getWidth(), c.getHeight());
+                    }
+                    drawMetricsOverlay(g);
+                } finally {
+                    g.dispose();
+                }
+            } while (strategy.contentsRestored());
+            strategy.show();
+        } while (strategy.contentsLost());
+        Toolkit.getDefaultToolkit().sync();
+        metrics.recordFrame(System.nanoTime() - start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.width = c.getWidth();
+            event.height = c.getHeight();
+            event.active = true;
+            event.commit();
+        }
+        recordInputLatency();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        PaintEvent event = new PaintEvent();
+        event.begin();
+        long start = System.nanoTime();
+        super.paintComponent(g);
+        if (gameLoop == null) {
+            renderFrame((Graphics2D) g, getWidth(), getHeight());
+            drawMetricsOverlay((Graphics2D) g);
+            metrics.recordFrame(System.nanoTime() - start);
+            event.end();
+            if (event.shouldCommit()) {
+                // 脏区域就是 RepaintManager 设置的裁剪区域
+                Rectangle clip = g.getClipBounds();
+                if (clip == null) {
+                    clip = new Rectangle(0, 0, getWidth(), getHeight());
+                }
+                event.x = clip.x;
+                event.y = clip.y;
+                event.width = clip.width;
+                event.height = clip.height;
+                event.commit();
             }
+            recordInputLatency();
         }
-        
-        // 添加更多游戏信息
-        int infoY = GameConfig.USE_COUNTDOWN_TIMER ? 280 : 260;
-        g.setFont(new Font("Arial", Font.PLAIN, 12));
-        g.drawString("操作说明:", sidebarX, infoY);
-        g.drawString("↑: 旋转", sidebarX, infoY + 20);
-        g.drawString("←→: 移动", sidebarX, infoY + 40);
-        g.drawString("↓: 加速下落", sidebarX, infoY + 60);
-        g.drawString("空格: 直接落底", sidebarX, infoY + 80);
-        g.drawString("P: 暂停游戏", sidebarX, infoY + 100);
     }
-}
 
-// 更新方块类，使用新的颜色系统
-class Tetromino {
-    private static final int BOARD_WIDTH = GameConfig.BOARD_WIDTH;
-    private static final int BOARD_HEIGHT = GameConfig.BOARD_HEIGHT;
-    
-    private int type;
-    private ArrayList<Point> blocks;
-    private int x, y;
-    private Color color;
-    private int rotationState = 0;
-    
-    // 使用HSV颜色模型生成的颜色
-    private static final Color[] TYPE_COLORS = ColorUtils.generateTetrominoColors();
+    // 在棋盘左上角画性能浮层，文字按固定间隔刷新
+    private void drawMetricsOverlay(Graphics2D g) {
+        if (!showMetrics) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (overlayImage == null || now - overlayRenderedNanos >= OVERLAY_REFRESH_NANOS) {
+            if (overlayImage == null) {
+                overlayImage = new BufferedImage(OVERLAY_WIDTH, OVERLAY_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+            }
+            Graphics2D og = overlayImage.createGraphics();
+            og.setComposite(AlphaComposite.Src);
+            og.setColor(OVERLAY_BACKGROUND);
+            og.fillRect(0, 0, OVERLAY_WIDTH, OVERLAY_HEIGHT);
+            og.setComposite(AlphaComposite.SrcOver);
+            og.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            og.setFont(OVERLAY_FONT);
+            og.setColor(Color.green);
+            String[] lines = metrics.summary();
+            for (int i = 0; i < lines.length; i++) {
+                og.drawString(lines[i], 4, 13 + i * 14);
+            }
+            og.dispose();
+            overlayRenderedNanos = now;
+        }
+        g.drawImage(overlayImage, 0, 0, null);
+    }
 
-    public Tetromino(int type, int x, int y) {
-        this.type = type;
-        this.x = x;
-        this.y = y;
-        this.color = TYPE_COLORS[(type - 1) % TYPE_COLORS.length];
-        this.blocks = getBlocksForType(type, rotationState);
+    /**
+     * 绘制一帧完整画面，被动模式下由 paintComponent 调用，主动模式下由循环线程调用。
+     * 先按组件大小和 g 的缩放更新布局，再去掉缩放按设备像素绘制，缓存图像不会被拉伸
+     */
+    private void renderFrame(Graphics2D g2d, int width, int height) {
+        AffineTransform saved = g2d.getTransform();
+        updateLayout(width, height, saved.getScaleX());
+        g2d.setTransform(new AffineTransform(1, 0, 0, 1, Math.round(saved.getTranslateX()) + originX,
+                Math.round(saved.getTranslateY())));
+        try {
+            renderContent(g2d);
+        } finally {
+            g2d.setTransform(saved);
+        }
     }
-    
-    // 获取特定类型方块的颜色
-    public static Color getColorForType(int type) {
-        return TYPE_COLORS[(type - 1) % TYPE_COLORS.length];
-    }
-
-    // 根据方块类型和旋转状态获取方块形状
-    private ArrayList<Point> getBlocksForType(int type, int rotation) {
-        ArrayList<Point> blocks = new ArrayList<>();
-        switch(type) {
-            case 1: // I
-                if (rotation % 2 == 0) { // 水平
-                    blocks.add(new Point(0, 0));
-                    blocks.add(new Point(1, 0));
-                    blocks.add(new Point(2, 0));
-                    blocks.add(new Point(3, 0));
-                } else { // 垂直
-                    blocks.add(new Point(1, -1));
-                    blocks.add(new Point(1, 0));
-                    blocks.add(new Point(1, 1));
-                    blocks.add(new Point(1, 2));
-                }
-                break;
-            case 2: // O
-                blocks.add(new Point(0, 0));
-                blocks.add(new Point(1, 0));
-                blocks.add(new Point(0, 1));
-                blocks.add(new Point(1, 1));
-                break;
-            case 3: // T
-                if (rotation == 0) {
-                    blocks.add(new Point(0, 0));
-                    blocks.add(new Point(1, 0));
-                    blocks.add(new Point(2, 0));
-                    blocks.add(new Point(1, 1));
-                } else if (rotation == 1) {
-                    blocks.add(new Point(1, -1));
-                    blocks.add(new Point(1, 0));
-                    blocks.add(new Point(1, 1));
-                    blocks.add(new Point(0, 0));
-                } else if (rotation == 2) {
-                    blocks.add(new Point(0, 0));
-                    blocks.add(new Point(1, 0));
-                    blocks.add(new Point(2, 0));
-                    blocks.add(new Point(1, -1));
-                } else {
-                    blocks.add(new Point(1, -1));
-                    blocks.add(new Point(1, 0));
-                    blocks.add(new Point(1, 1));
-                    blocks.add(new Point(2, 0));
-                }
-                break;
-            case 4: // S
-                if (rotation % 2 == 0) {
-                    blocks.add(new Point(1, 0));
-                    blocks.add(new Point(2, 0));
-                    blocks.add(new Point(0, 1));
-                    blocks.add(new Point(1, 1));
-                } else {
-                    blocks.add(new Point(0, 0));
-                    blocks.add(new Point(0, 1));
-                    blocks.add(new Point(1, -1));
-                    blocks.add(new Point(1, 0));
-                }
-                break;
-            case 5: // Z
-                if (rotation % 2 == 0) {
-                    blocks.add(new Point(0, 0));
-                    blocks.add(new Point(1, 0));
-                    blocks.add(new Point(1, 1));
-                    blocks.add(new Point(2, 1));
-                } else {
-                    blocks.add(new Point(1, -1));
-                    blocks.add(new Point(1, 0));
-                    blocks.add(new Point(0, 0));
-                    blocks.add(new Point(0, 1));
-                }
-                break;
-            case 6: // J
-                if (rotation == 0) {
-                    blocks.add(new Point(0, 0));
-                    blocks.add(new Point(1, 0));
-                    blocks.add(new Point(2, 0));
-                    blocks.add(new Point(0, 1));
-                } else if (rotation == 1) {
-                    blocks.add(new Point(1, -1));
-                    blocks.add(new Point(1, 0));
-                    blocks.add(new Point(1, 1));
-                    blocks.add(new Point(0, 1));
-                } else if (rotation == 2) {
-                    blocks.add(new Point(0, 0));
-                    blocks.add(new Point(1, 0));
-                    blocks.add(new Point(2, 0));
-                    blocks.add(new Point(2, -1));
-                } else {
-                    blocks.add(new Point(1, -1));
-                    blocks.add(new Point(1, 0));
-                    blocks.add(new Point(1, 1));
-                    blocks.add(new Point(2, -1));
+
+    // 按设备像素绘制棋盘和侧边栏
+    private void renderContent(Graphics2D g2d) {
+        // 启用抗锯齿
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        
+        // 背景、网格和视口内已锁定的方块来自缓存图层
+        boolean atlasChanged = ensureTileAtlases();
+        Board board = engine != null ? engine.getBoard() : null;
+        updateViewport();
+        long now = System.nanoTime();
+        boolean clearing = isRowClearAnimating(board, now);
+        paintedBoard = board;
+        paintedBoardVersion = board != null ? board.getVersion() : 0;
+        if (rasterRendering && !clearing) {
+            renderRaster(g2d, board);
+            drawAnimations(g2d, now, 0);
+            drawSidebar(g2d);
+            return;
+        }
+        Image boardImage;
+        if (rasterRendering) {
+            // 消行动画要切开棋盘图像，活动方块另外画在上面
+            ensureRasterRenderer();
+            rasterRenderer.render(board, viewTop, null, 0);
+            boardImage = rasterRenderer.getImage();
+        } else {
+            if (boardLayer == null || atlasChanged || board != boardLayerSource || viewTop != boardLayerViewTop
+                    || (board != null && board.getVersion() != boardLayerVersion)) {
+                rebuildBoardLayer(board);
+            }
+            boardImage = boardLayer;
+        }
+        long clearNanos = 0;
+        if (clearing) {
+            long start = System.nanoTime();
+            drawRowClear(g2d, boardImage, now);
+            clearNanos = System.nanoTime() - start;
+        } else {
+            g2d.drawImage(boardImage, 0, 0, null);
+        }
+
+        if (engine == null) {
+            drawSidebar(g2d);
+            return;
+        }
+
+        // 绘制当前方块
+        Tetromino currentTetromino = engine.getCurrentTetromino();
+        if (currentTetromino != null) {
+            // 影子方块：落底位置由列高度直接算出；消行动画中上方的方块还没落到位，不画影子
+            int ghostY = engine.getGhostY();
+            if (ghostY != currentTetromino.getY() && !clearing) {
+                for(int i = 0; i < currentTetromino.getCellCount(); i++) {
+                    int x = currentTetromino.getCellX(i) + currentTetromino.getX();
+                    int y = currentTetromino.getCellY(i) + ghostY;
+                    if (y >= viewTop && y < viewTop + viewRows && x >= 0 && x < columns) {
+                        tileAtlas.drawGhost(g2d, currentTetromino.getType(), x * cellSize, (y - viewTop) * cellSize);
+                    }
                 }
-                break;
-            case 7: // L
-                if (rotation == 0) {
-                    blocks.add(new Point(0, 0));
-                    blocks.add(new Point(1, 0));
-                    blocks.add(new Point(2, 0));
-                    blocks.add(new Point(2, 1));
-                } else if (rotation == 1) {
-                    blocks.add(new Point(1, -1));
-                    blocks.add(new Point(1, 0));
-                    blocks.add(new Point(1, 1));
-                    blocks.add(new Point(0, -1));
-                } else if (rotation == 2) {
-                    blocks.add(new Point(0, 0));
-                    blocks.add(new Point(1, 0));
-                    blocks.add(new Point(2, 0));
-                    blocks.add(new Point(0, -1));
-                } else {
-                    blocks.add(new Point(1, -1));
-                    blocks.add(new Point(1, 0));
-                    blocks.add(new Point(1, 1));
-                    blocks.add(new Point(2, 1));
+            }
+            for(int i = 0; i < currentTetromino.getCellCount(); i++) {
+                int x = currentTetromino.getCellX(i) + currentTetromino.getX();
+                int y = currentTetromino.getCellY(i) + currentTetromino.getY();
+                if (y >= viewTop && y < viewTop + viewRows && x >= 0 && x < columns) {
+                    tileAtlas.drawTile(g2d, currentTetromino.getType(), x * cellSize, (y - viewTop) * cellSize);
                 }
-                break;
+            }
+        }
+        drawAnimations(g2d, now, clearNanos);
+
+        // 绘制侧边栏
+        drawSidebar(g2d);
+    }
+
+    private void ensureRasterRenderer() {
+        if (rasterRenderer == null || !rasterRenderer.matches(columns, viewRows, cellSize, palette)) {
+            rasterRenderer = new RasterBoardRenderer(columns, viewRows, cellSize, palette);
         }
-        return blocks;
     }
 
-    public void move(int dx, int dy) {
-        x += dx;
-        y += dy;
+    // 像素渲染：更新变化的格子后整张棋盘图像一次贴出
+    private void renderRaster(Graphics2D g2d, Board board) {
+        ensureRasterRenderer();
+        Tetromino t = engine != null ? engine.getCurrentTetromino() : null;
+        rasterRenderer.render(board, viewTop, t, t != null ? engine.getGhostY() : 0);
+        g2d.drawImage(rasterRenderer.getImage(), 0, 0, null);
     }
 
-    public void rotate() {
-        rotationState = (rotationState + 1) % 4;
-        blocks = getBlocksForType(type, rotationState);
+    // 消行动画是否在播放；消行之后棋盘又有变化（下一个方块已锁定）时提前结束
+    private boolean isRowClearAnimating(Board board, long now) {
+        if (!timeline.isActive(ANIM_ROW_CLEAR, now)) {
+            return false;
+        }
+        if (board != clearBoard || board.getVersion() != clearBoardVersion) {
+            timeline.cancel(ANIM_ROW_CLEAR);
+            return false;
+        }
+        return true;
     }
 
-    public void rotateBack() {
-        rotationState = (rotationState + 3) % 4;
-        blocks = getBlocksForType(type, rotationState);
+    /**
+     * 消行动画：先闪烁被消除的行，再让上方的方块从原来的位置落到新位置。
+     * 棋盘图像已经是消行后的状态，按被消除的行把它切成几段，每段向上偏移还没落下的距离，
+     * 段与段之间画正在收拢的空隙。每帧最多 clearCount + 1 次 drawImage 和 clearCount 次填充
+     */
+    private void drawRowClear(Graphics2D g, Image image, long now) {
+        int flashMs = GameConfig.ROW_FLASH_MS;
+        float t = timeline.progress(ANIM_ROW_CLEAR, now) * (flashMs + GameConfig.ROW_COLLAPSE_MS);
+        float open = t < flashMs ? 1 : 1 - Timeline.easeOut((t - flashMs) / GameConfig.ROW_COLLAPSE_MS);
+        int gap = Math.round(cellSize * open);
+        int width = columns * cellSize + 1;
+        int viewHeight = viewRows * cellSize;
+
+        g.drawImage(image, 0, 0, null);
+        // 第 j 段是消除前第 j-1 个和第 j 个被消除行之间的行，消行后下移了 clearCount - j 行
+        int bandStart = Integer.MIN_VALUE / 2;
+        for (int j = 0; j < clearCount; j++) {
+            int shift = clearCount - j;
+            int bandEnd = clearRows[j] + shift; // 消行后的行号（不含）
+            int offset = -shift * gap;
+            int ys = Math.max(0, (bandStart - viewTop) * cellSize);
+            int ye = Math.min(viewHeight, (bandEnd - viewTop) * cellSize);
+            if (ys < ye) {
+                g.drawImage(image, 0, ys + offset, width, ye + offset, 0, ys, width, ye, null);
+            }
+            // 段下方是被消除的行留下的空隙：闪烁阶段为白色，收拢时渐隐到背景色
+            int gapY = (bandEnd - viewTop) * cellSize + offset;
+            if (gap > 0 && gapY + gap > 0 && gapY < viewHeight) {
+                g.setColor(BOARD_BACKGROUND);
+                g.fillRect(0, gapY, width, gap);
+                Composite saved = g.getComposite();
+                g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.85f * open));
+                g.setColor(Color.white);
+                g.fillRect(0, gapY, width, gap);
+                g.setComposite(saved);
+            }
+            bandStart = bandEnd;
+        }
     }
 
-    public boolean collidesWithBoard(int[][] board, int boardWidth, int boardHeight) {
-        for (Point p : blocks) {
-            int newX = x + p.x;
-            int newY = y + p.y;
-            if (newX < 0 || newX >= boardWidth || newY >= boardHeight || (newY >= 0 && board[newY][newX] != 0)) {
-                return true;
+    /**
+     * 升级提示和游戏结束浮层，画在棋盘和活动方块之上。
+     * 有动画的帧把本帧的动画耗时（含消行动画的 clearNanos）记入指标
+     */
+    private void drawAnimations(Graphics2D g, long now, long clearNanos) {
+        boolean level = timeline.isActive(ANIM_LEVEL_UP, now);
+        boolean over = timeline.isActive(ANIM_GAME_OVER, now) && engine != null;
+        if (!level && !over) {
+            if (clearNanos > 0) {
+                metrics.recordAnimation(clearNanos);
+            }
+            return;
+        }
+        long start = System.nanoTime();
+        Composite saved = g.getComposite();
+        int boardWidth = columns * cellSize + 1;
+        int boardHeight = viewRows * cellSize + 1;
+        if (level) {
+            // 淡入、停留、淡出，同时缓慢上移
+            float t = timeline.progress(ANIM_LEVEL_UP, now);
+            float alpha = t < 0.15f ? t / 0.15f : t > 0.7f ? (1 - t) / 0.3f : 1;
+            if (levelUpImage == null || levelUpImageLevel != engine.getLevel()) {
+                levelUpImageLevel = engine.getLevel();
+                levelUpImage = renderText(new String[] {"升级！", "关卡 " + levelUpImageLevel},
+                        infoFont.deriveFont(infoFont.getSize2D() * 2), new Color(255, 220, 80));
+            }
+            g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alpha));
+            g.drawImage(levelUpImage, (boardWidth - levelUpImage.getWidth()) / 2,
+                    boardHeight / 3 - Math.round(ui(30) * t), null);
+        }
+        if (over) {
+            float t = Timeline.easeOut(timeline.progress(ANIM_GAME_OVER, now));
+            g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.65f * t));
+            g.setColor(Color.black);
+            g.fillRect(0, 0, boardWidth, boardHeight);
+            if (gameOverImage == null) {
+                gameOverImage = renderText(new String[] {
+                    "游戏结束！",
+                    "最终得分：" + engine.getScore(),
+                    "达到关卡：" + engine.getLevel(),
+                    "消除行数：" + engine.getLinesCleared(),
+                    " ",
+                    "按回车键返回"
+                }, infoFont.deriveFont(infoFont.getSize2D() * 1.5f), Color.white);
             }
+            g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, t));
+            g.drawImage(gameOverImage, (boardWidth - gameOverImage.getWidth()) / 2,
+                    (boardHeight - gameOverImage.getHeight()) / 2, null);
         }
-        return false;
+        g.setComposite(saved);
+        metrics.recordAnimation(clearNanos + System.nanoTime() - start);
     }
 
-    public void lockToBoard(int[][] board) {
-        for (Point p : blocks) {
-            int newX = x + p.x;
-            int newY = y + p.y;
-            if (newY >= 0 && newY < board.length && newX >= 0 && newX < board[0].length) {
-                board[newY][newX] = type;
+    // 把几行居中的文字排版到透明图像中，动画每帧只需贴图
+    private static BufferedImage renderText(String[] lines, Font font, Color color) {
+        BufferedImage scratch = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D sg = scratch.createGraphics();
+        FontMetrics fm = sg.getFontMetrics(font);
+        sg.dispose();
+        int width = 1;
+        for (String line : lines) {
+            width = Math.max(width, fm.stringWidth(line));
+        }
+        int lineHeight = fm.getHeight();
+        BufferedImage image = new BufferedImage(width + 4, lineHeight * lines.length + 4, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setFont(font);
+        for (int i = 0; i < lines.length; i++) {
+            int x = 2 + (width - fm.stringWidth(lines[i])) / 2;
+            int y = 2 + i * lineHeight + fm.getAscent();
+            // 一像素的阴影让文字在方块上也清晰
+            g.setColor(Color.black);
+            g.drawString(lines[i], x + 1, y + 1);
+            g.setColor(color);
+            g.drawString(lines[i], x, y);
+        }
+        g.dispose();
+        return image;
+    }
+
+    // 当前裁剪区域是否包含侧边栏
+    private boolean clipIncludesSidebar(Graphics g) {
+        // 没有裁剪区域时 getClipBounds 保持传入的矩形不变
+        clipBounds.setBounds(0, 0, Integer.MAX_VALUE / 2, deviceHeight);
+        g.getClipBounds(clipBounds);
+        return clipBounds.x + clipBounds.width > columns * cellSize;
+    }
+
+    /**
+     * 视口跟随活动方块：方块和落点能同时放进视口时，让落点下方留出 VIEW_MARGIN_ROWS 行；
+     * 落点太远（如很深的竖井）时视口跟着方块下落
+     * @return 视口是否移动
+     */
+    private boolean updateViewport() {
+        int top = 0;
+        GameEngine e = engine;
+        if (e != null && boardRows > viewRows) {
+            Tetromino t = e.getCurrentTetromino();
+            int pieceTop = Integer.MAX_VALUE, ghostBottom = 0;
+            for (int i = 0; i < t.getCellCount(); i++) {
+                pieceTop = Math.min(pieceTop, t.getY() + t.getCellY(i));
+                ghostBottom = Math.max(ghostBottom, e.getGhostY() + t.getCellY(i));
+            }
+            if (ghostBottom - pieceTop < viewRows) {
+                top = Math.min(pieceTop, ghostBottom + 1 + VIEW_MARGIN_ROWS - viewRows);
+            } else {
+                top = pieceTop - VIEW_MARGIN_ROWS;
             }
+            top = Math.max(0, Math.min(top, boardRows - viewRows));
         }
+        boolean moved = top != viewTop;
+        viewTop = top;
+        return moved;
     }
 
-    public ArrayList<Point> getBlocks() {
-        return blocks;
+    /**
+     * 按组件大小（逻辑像素）和显示缩放计算布局：整体按相对默认窗口的比例缩放，
+     * 格子取整数像素，高于视口的棋盘在更高的窗口里显示更多行。大小和缩放都没变时直接返回
+     */
+    private void updateLayout(int width, int height, double scale) {
+        if (width == layoutWidth && height == layoutHeight && scale == layoutScale) {
+            return;
+        }
+        layoutWidth = width;
+        layoutHeight = height;
+        layoutScale = scale;
+        int deviceWidth = (int) Math.round(width * scale);
+        deviceHeight = Math.max(1, (int) Math.round(height * scale));
+        uiScale = Math.max(MIN_UI_SCALE, Math.min((double) deviceWidth / (columns * baseCellSize + SIDEBAR_WIDTH),
+                (double) deviceHeight / (baseViewRows * baseCellSize)));
+        cellSize = Math.max(1, (int) (baseCellSize * uiScale));
+        viewRows = Math.max(1, Math.min(boardRows, deviceHeight / cellSize));
+        sidebarWidth = ui(SIDEBAR_WIDTH);
+        previewCellSize = Math.max(1, ui(PREVIEW_CELL_SIZE));
+        originX = Math.max(0, (deviceWidth - columns * cellSize - sidebarWidth) / 2);
+        infoFont = INFO_FONT.deriveFont((float) (INFO_FONT.getSize2D() * uiScale));
+        helpFont = HELP_FONT.deriveFont((float) (HELP_FONT.getSize2D() * uiScale));
+        // 缓存图像在下次绘制时按新尺寸重建
+        boardLayer = null;
+        statsImage = null;
+        levelUpImage = null;
+        gameOverImage = null;
+        sidebarFrc = null;
+        pieceBounds.setBounds(0, 0, 0, 0);
+        updateViewport();
+    }
+
+    // 把默认窗口下的长度换算成当前布局的设备像素
+    private int ui(int length) {
+        return (int) Math.round(length * uiScale);
+    }
+
+    /**
+     * 设置下一局的棋盘尺寸。宽度受行掩码限制，最多 Board.MAX_WIDTH 列；
+     * 格子按宽度缩小到棋盘区域不超过 GameConfig.MAX_BOARD_PIXELS，行数超过视口时滚动显示。
+     */
+    public void setBoardSize(int width, int height) {
+        if (width < 1 || width > Board.MAX_WIDTH || height < 1) {
+            throw new IllegalArgumentException("不支持的棋盘尺寸: " + width + "x" + height);
+        }
+        columns = width;
+        boardRows = height;
+        baseCellSize = Math.max(1, Math.min(GameConfig.CELL_SIZE, GameConfig.MAX_BOARD_PIXELS / width));
+        baseViewRows = Math.min(height, VIEW_HEIGHT / baseCellSize);
+        cellSize = baseCellSize;
+        viewRows = baseViewRows;
+        viewTop = 0;
+        layoutScale = 0;
+        boardLayer = null;
+        pieceBounds.setBounds(0, 0, 0, 0);
+        setPreferredSize(new Dimension(columns * baseCellSize + SIDEBAR_WIDTH, baseViewRows * baseCellSize));
+        revalidate();
+        if (frame != null) {
+            frame.pack();
+        }
+        repaint();
+    }
+
+    public int getBoardColumns() {
+        return columns;
+    }
+
+    public int getBoardRows() {
+        return boardRows;
+    }
+    
+    // 重建背景、网格和视口内已锁定方块的缓存图层
+    private void rebuildBoardLayer(Board board) {
+        if (boardLayer == null) {
+            boardLayer = new BufferedImage(columns * cellSize + 1, viewRows * cellSize + 1,
+                    BufferedImage.TYPE_INT_RGB);
+        }
+        Graphics2D g2d = boardLayer.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        
+        // 绘制主游戏区域背景
+        g2d.setColor(BOARD_BACKGROUND);
+        g2d.fillRect(0, 0, boardLayer.getWidth(), boardLayer.getHeight());
+        
+        // 绘制网格线
+        g2d.setColor(new Color(50, 50, 60));
+        for (int i = 0; i <= columns; i++) {
+            g2d.drawLine(i * cellSize, 0, i * cellSize, viewRows * cellSize);
+        }
+        for (int i = 0; i <= viewRows; i++) {
+            g2d.drawLine(0, i * cellSize, columns * cellSize, i * cellSize);
+        }
+
+        // 绘制视口内的方块，活动区域以上和空行直接跳过
+        if (board != null) {
+            int first = Math.max(viewTop, board.getHeight() - board.getActiveRows());
+            int last = Math.min(board.getHeight(), viewTop + viewRows);
+            for (int i = first; i < last; i++) {
+                if (board.isRowEmpty(i)) {
+                    continue;
+                }
+                for (int j = 0; j < columns; j++) {
+                    if (board.getCell(j, i) != 0) {
+                        tileAtlas.drawTile(g2d, board.getCell(j, i), j * cellSize, (i - viewTop) * cellSize);
+                    }
+                }
+            }
+            boardLayerVersion = board.getVersion();
+        }
+        boardLayerSource = board;
+        boardLayerViewTop = viewTop;
+        g2d.dispose();
+    }
+    
+    /**
+     * 确保贴图集与当前的格子大小和调色板一致
+     * @return 贴图集是否被重建
+     */
+    private boolean ensureTileAtlases() {
+        boolean changed = false;
+        if (tileAtlas == null || !tileAtlas.matches(cellSize, palette)) {
+            tileAtlas = new TileAtlas(cellSize, palette);
+            changed = true;
+        }
+        if (previewAtlas == null || !previewAtlas.matches(previewCellSize, palette)) {
+            previewAtlas = new TileAtlas(previewCellSize, palette);
+            changed = true;
+        }
+        return changed;
     }
 
-    public int getX() {
-        return x;
+    // 更换方块调色板，贴图集和棋盘图层会在下次绘制时重建
+    public void setPalette(Color[] palette) {
+        this.palette = palette.clone();
+        repaint();
+    }
+    
+    // 绘制侧边栏
+    private void drawSidebar(Graphics2D g) {
+        if (!clipIncludesSidebar(g)) {
+            return;
+        }
+        int sidebarX = columns * cellSize + ui(10);
+        
+        // 侧边栏背景
+        g.setColor(SIDEBAR_BACKGROUND);
+        g.fillRect(columns * cellSize + ui(5), 0, sidebarWidth - ui(5), deviceHeight);
+        
+        // 绘制游戏信息：数值只在变化时重新排版到缓存图像中
+        int score = engine != null ? engine.getScore() : 0;
+        int level = engine != null ? engine.getLevel() : 1;
+        int linesCleared = engine != null ? engine.getLinesCleared() : 0;
+        int comboCount = engine != null ? engine.getComboCount() : 0;
+        if (statsImage == null || score != shownScore || level != shownLevel || linesCleared != shownLines
+                || comboCount != shownCombo || timeLeft != shownTimeLeft) {
+            renderStats(score, level, linesCleared, comboCount);
+        }
+        g.drawImage(statsImage, sidebarX, 0, null);
+        
+        // 静态文字使用预先排版好的字形
+        ensureSidebarGlyphs(g.getFontRenderContext());
+        g.setColor(Color.white);
+        // 没有倒计时，下一个方块预览标题可以上移
+        g.drawGlyphVector(nextLabelGlyphs, sidebarX, ui(GameConfig.USE_COUNTDOWN_TIMER ? 140 : 120));
+        
+        // 绘制下一个方块预览
+        Tetromino nextTetromino = engine != null ? engine.getNextTetromino() : null;
+        shownNextType = nextTetromino != null ? nextTetromino.getType() : 0;
+        if(nextTetromino != null) {
+            int previewX = sidebarX + ui(10);
+            // 调整预览Y位置，根据是否显示倒计时
+            int previewY = ui(GameConfig.USE_COUNTDOWN_TIMER ? 160 : 140);
+            
+            g.setColor(PREVIEW_BACKGROUND);
+            g.fillRect(previewX - ui(5), previewY - ui(5), ui(90), ui(90));
+            
+            for(int i = 0; i < nextTetromino.getCellCount(); i++){
+                int blockX = previewX + nextTetromino.getCellX(i) * previewCellSize;
+                int blockY = previewY + nextTetromino.getCellY(i) * previewCellSize;
+                previewAtlas.drawTile(g, nextTetromino.getType(), blockX, blockY);
+            }
+        }
+        
+        // 添加更多游戏信息
+        int infoY = GameConfig.USE_COUNTDOWN_TIMER ? 280 : 260;
+        g.setColor(Color.white);
+        for (int i = 0; i < helpGlyphs.length; i++) {
+            g.drawGlyphVector(helpGlyphs[i], sidebarX, ui(infoY + i * 20));
+        }
     }
 
-    public int getY() {
-        return y;
+    // 把得分、关卡、行数、连击（和倒计时）渲染到侧边栏的缓存图像中
+    private void renderStats(int score, int level, int linesCleared, int comboCount) {
+        int height = ui((GameConfig.USE_COUNTDOWN_TIMER ? 110 : 90) + 6);
+        if (statsImage == null) {
+            statsImage = new BufferedImage(Math.max(1, ui(SIDEBAR_WIDTH - 10)), Math.max(1, height),
+                    BufferedImage.TYPE_INT_RGB);
+        }
+        Graphics2D g = statsImage.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setColor(SIDEBAR_BACKGROUND);
+        g.fillRect(0, 0, statsImage.getWidth(), statsImage.getHeight());
+        g.setFont(infoFont);
+        g.setColor(Color.white);
+        g.drawString("得分: " + score, 0, ui(30));
+        g.drawString("关卡: " + level, 0, ui(50));
+        g.drawString("行数: " + linesCleared, 0, ui(70));
+        g.drawString("连击: " + comboCount, 0, ui(90));
+        
+        // 只在使用倒计时时显示倒计时
+        if (GameConfig.USE_COUNTDOWN_TIMER) {
+            g.drawString("倒计时: " + timeLeft + "s", 0, ui(110));
+        }
+        g.dispose();
+        shownScore = score;
+        shownLevel = level;
+        shownLines = linesCleared;
+        shownCombo = comboCount;
+        shownTimeLeft = timeLeft;
     }
 
-    public Color getColor() {
-        return color;
+    // 按当前的字体渲染上下文排版侧边栏的静态文字，渲染上下文不变时直接复用
+    private void ensureSidebarGlyphs(FontRenderContext frc) {
+        if (frc.equals(sidebarFrc)) {
+            return;
+        }
+        sidebarFrc = frc;
+        nextLabelGlyphs = infoFont.createGlyphVector(frc, "下一个:");
+        helpGlyphs = new GlyphVector[HELP_LINES.length];
+        for (int i = 0; i < HELP_LINES.length; i++) {
+            helpGlyphs[i] = helpFont.createGlyphVector(frc, HELP_LINES[i]);
+        }
     }
 }
 
 // 高分面板更新，现在实际实现分数加载
 class HighScorePanel extends JPanel {
     private JTextArea scoreArea;
+    private final HighScoreStore highScores;
     
-    public HighScorePanel(JFrame frame, JPanel mainPanel) {
+    public HighScorePanel(JFrame frame, JPanel mainPanel, HighScoreStore highScores) {
+        this.highScores = highScores;
         setLayout(new BorderLayout());
         JLabel title = new JLabel("高分榜", SwingConstants.CENTER);
         title.setFont(new Font("Arial", Font.BOLD, 24));
@@ -877,38 +1565,297 @@ class HighScorePanel extends JPanel {
             }
         });
         add(backButton, BorderLayout.SOUTH);
+
+        // 加载完成时如果面板正在显示，刷新一次
+        highScores.setChangeListener(new Runnable() {
+            public void run() {
+                SwingUtilities.invokeLater(new Runnable() {
+                    public void run() {
+                        if (isShowing()) {
+                            updateScores();
+                        }
+                    }
+                });
+            }
+        });
     }
 
     public void updateScores() {
-        try {
-            File file = new File("highscores.txt");
-            StringBuilder sb = new StringBuilder();
-            sb.append("排名\t分数\n");
-            sb.append("------------------\n");
-            
-            if (file.exists()) {
-                Scanner scanner = new Scanner(file);
-                int rank = 1;
-                while (scanner.hasNextInt() && rank <= 10) {
-                    int score = scanner.nextInt();
-                    sb.append(rank).append(".\t").append(score).append("\n");
-                    rank++;
+        StringBuilder sb = new StringBuilder();
+        sb.append("排名\t分数\n");
+        sb.append("------------------\n");
+
+        int[] scores = highScores.getScores();
+        if (!highScores.isLoaded()) {
+            sb.append("正在加载...\n");
+        } else if (scores.length == 0) {
+            sb.append("暂无分数记录\n");
+        }
+        for (int i = 0; i < scores.length; i++) {
+            sb.append(i + 1).append(".\t").append(scores[i]).append("\n");
+        }
+        scoreArea.setText(sb.toString());
+    }
+}
+
+// 双人对战面板：左边是自己，右边是对手，两块棋盘都用像素渲染器绘制
+class VersusPanel extends JPanel {
+    private static final long serialVersionUID = 1L;
+    private static final int CELL_SIZE = 24;
+    private static final int MARGIN = 20;
+    private static final int HEADER = 44;
+    private static final int FOOTER = 56;
+    private static final int GARBAGE_BAR = 8;
+    private static final Color GARBAGE_COLOR = new Color(110, 110, 120);
+    private static final Color BACKGROUND = new Color(20, 20, 30);
+    private static final Color GARBAGE_BAR_BACKGROUND = new Color(60, 60, 70);
+    private static final Color PENDING_COLOR = Color.RED;
+    private static final Color TEXT_COLOR = Color.WHITE;
+    private static final Font TITLE_FONT = new Font("Dialog", Font.BOLD, 16);
+    private static final Font INFO_FONT = new Font("Dialog", Font.PLAIN, 12);
+    private static final Font RESULT_FONT = new Font("Dialog", Font.BOLD, 18);
+
+    private final JFrame frame;
+    private final JPanel mainPanel;
+    private final Color[] palette;
+    private final RasterBoardRenderer[] renderers = new RasterBoardRenderer[VersusMatch.PLAYERS];
+    private final javax.swing.Timer timer;
+    private VersusSession session;
+    private String waitingText;
+    private final int footerY;
+    // 绘制用的文字只在数值变化时重新生成，平时重绘不分配内存
+    private final String[] scoreText = new String[VersusMatch.PLAYERS];
+    private final int[] scoreShown = new int[VersusMatch.PLAYERS];
+    private final int[] linesShown = new int[VersusMatch.PLAYERS];
+    private String statusText;
+    private long statusKey;
+    // 当前按住的操作位图，以及上次采样以来按下过的操作（按下又很快松开也至少生效一帧）
+    private int heldBits;
+    private int pressedBits;
+
+    public VersusPanel(JFrame frame, JPanel mainPanel) {
+        this.frame = frame;
+        this.mainPanel = mainPanel;
+        // 七种方块颜色之后追加垃圾行的灰色，对应 GameConfig.GARBAGE_TYPE
+        Color[] colors = ColorUtils.generateTetrominoColors();
+        palette = Arrays.copyOf(colors, colors.length + 1);
+        palette[colors.length] = GARBAGE_COLOR;
+
+        int boardWidth = GameConfig.BOARD_WIDTH * CELL_SIZE + 1;
+        int boardHeight = GameConfig.BOARD_HEIGHT * CELL_SIZE + 1;
+        setPreferredSize(new Dimension(2 * (boardWidth + GARBAGE_BAR + 4) + 3 * MARGIN,
+                HEADER + boardHeight + FOOTER));
+        footerY = HEADER + boardHeight + 30;
+        setBackground(BACKGROUND);
+        setFocusable(true);
+
+        // 计时器比帧率更密，实际推进的帧数由会话按纳秒时间决定
+        timer = new javax.swing.Timer((int) (VersusSession.FRAME_NANOS / 2000000L), new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                tick();
+            }
+        });
+
+        addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                if (e.getKeyCode() == KeyEvent.VK_ESCAPE) {
+                    leave();
+                    return;
                 }
-                scanner.close();
-            } else {
-                sb.append("暂无分数记录\n");
+                int bit = actionBit(e.getKeyCode());
+                heldBits |= bit;
+                pressedBits |= bit;
             }
-            
-            scoreArea.setText(sb.toString());
+
+            @Override
+            public void keyReleased(KeyEvent e) {
+                heldBits &= ~actionBit(e.getKeyCode());
+            }
+        });
+    }
+
+    private static int actionBit(int key) {
+        switch (key) {
+            case KeyEvent.VK_LEFT:
+                return 1 << GameEngine.Action.LEFT.ordinal();
+            case KeyEvent.VK_RIGHT:
+                return 1 << GameEngine.Action.RIGHT.ordinal();
+            case KeyEvent.VK_DOWN:
+                return 1 << GameEngine.Action.SOFT_DROP.ordinal();
+            case KeyEvent.VK_UP:
+                return 1 << GameEngine.Action.ROTATE.ordinal();
+            case KeyEvent.VK_SPACE:
+                return 1 << GameEngine.Action.HARD_DROP.ordinal();
+            default:
+                return 0;
+        }
+    }
+
+    // 本地输入在事件分发线程上采样，与按键事件在同一线程，不需要同步
+    private VersusSession.InputSource input() {
+        return new VersusSession.InputSource() {
+            public int sample(VersusMatch match, int player, int frame) {
+                int bits = heldBits | pressedBits;
+                pressedBits = 0;
+                return bits;
+            }
+        };
+    }
+
+    /**
+     * 在端口上创建对战，等待对手加入
+     */
+    public void host(int port) {
+        try {
+            open(VersusSession.host(port, System.nanoTime(), GameConfig.BOARD_WIDTH, GameConfig.BOARD_HEIGHT,
+                    GameConfig.INPUT_DELAY_FRAMES, input(), true), "等待对手加入（端口 " + port + "）...");
         } catch (IOException e) {
-            scoreArea.setText("加载分数时出错: " + e.getMessage());
+            JOptionPane.showMessageDialog(frame, "无法创建对战: " + e.getMessage(), "对战",
+                    JOptionPane.ERROR_MESSAGE);
         }
     }
+
+    /**
+     * 加入另一台机器上创建的对战
+     */
+    public void join(String host, int port) {
+        try {
+            open(VersusSession.join(host, port, input(), true), "正在连接 " + host + ":" + port + "...");
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(frame, "无法连接: " + e.getMessage(), "对战", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void open(VersusSession s, String text) {
+        close();
+        session = s;
+        waitingText = text;
+        heldBits = 0;
+        pressedBits = 0;
+        CardLayout cl = (CardLayout) mainPanel.getLayout();
+        cl.show(mainPanel, "Versus");
+        requestFocusInWindow();
+        timer.start();
+        repaint();
+    }
+
+    private void tick() {
+        if (session == null) {
+            return;
+        }
+        session.update(System.nanoTime());
+        repaint();
+        if (session.isFinished() || (session.isClosed() && !session.isStarted())) {
+            timer.stop(); // 停在最后一帧，按 Esc 返回
+        }
+    }
+
+    private void close() {
+        timer.stop();
+        if (session != null) {
+            session.close();
+            session = null;
+        }
+    }
+
+    // 退出对战，回到开始界面
+    private void leave() {
+        close();
+        CardLayout cl = (CardLayout) mainPanel.getLayout();
+        cl.show(mainPanel, "Start");
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        Graphics2D g2d = (Graphics2D) g;
+        g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g2d.setColor(TEXT_COLOR);
+        VersusSession s = session;
+        VersusMatch match = s != null ? s.getMatch() : null;
+        if (match == null) {
+            g2d.setFont(RESULT_FONT);
+            String text = s == null ? "按 Esc 返回" : s.isClosed() ? "连接失败: " + s.getCloseReason() : waitingText;
+            g2d.drawString(text, MARGIN, HEADER + MARGIN);
+            return;
+        }
+
+        int local = s.getLocalPlayer();
+        int x = MARGIN;
+        for (int i = 0; i < VersusMatch.PLAYERS; i++) {
+            int player = i == 0 ? local : 1 - local;
+            GameEngine engine = match.getEngine(player);
+            Board board = engine.getBoard();
+            if (renderers[i] == null || !renderers[i].matches(board.getWidth(), board.getHeight(), CELL_SIZE, palette)) {
+                renderers[i] = new RasterBoardRenderer(board.getWidth(), board.getHeight(), CELL_SIZE, palette);
+            }
+            Tetromino piece = engine.isGameOver() ? null : engine.getCurrentTetromino();
+            renderers[i].render(board, 0, piece, piece != null ? engine.getGhostY() : 0);
+            BufferedImage image = renderers[i].getImage();
+
+            // 待收的垃圾行显示为棋盘左侧的红条
+            int pending = Math.min(match.getPendingGarbage(player), board.getHeight());
+            g2d.setColor(GARBAGE_BAR_BACKGROUND);
+            g2d.fillRect(x, HEADER, GARBAGE_BAR, image.getHeight());
+            g2d.setColor(PENDING_COLOR);
+            g2d.fillRect(x, HEADER + image.getHeight() - pending * CELL_SIZE, GARBAGE_BAR, pending * CELL_SIZE);
+            int boardX = x + GARBAGE_BAR + 4;
+            g2d.drawImage(image, boardX, HEADER, null);
+
+            g2d.setColor(TEXT_COLOR);
+            g2d.setFont(TITLE_FONT);
+            g2d.drawString(i == 0 ? "你" : "对手", boardX, 20);
+            g2d.setFont(INFO_FONT);
+            g2d.drawString(scoreText(i, engine.getScore(), engine.getLinesCleared()), boardX, 36);
+            x = boardX + image.getWidth() + MARGIN;
+        }
+
+        g2d.setFont(match.isOver() ? RESULT_FONT : INFO_FONT);
+        g2d.setColor(TEXT_COLOR);
+        g2d.drawString(statusText(s, match), MARGIN, footerY);
+    }
+
+    private String scoreText(int side, int score, int lines) {
+        if (scoreText[side] == null || scoreShown[side] != score || linesShown[side] != lines) {
+            scoreText[side] = "分数 " + score + "   行数 " + lines;
+            scoreShown[side] = score;
+            linesShown[side] = lines;
+        }
+        return scoreText[side];
+    }
+
+    // 状态栏文字，往返时间按 0.1 毫秒取整，与其他状态一起作为缓存的键
+    private String statusText(VersusSession s, VersusMatch match) {
+        long rtt = s.getConnection().getRoundTrip().getValueAtPercentile(0.5) / 100000L;
+        long stalls = s.getStalls().getCount();
+        int state = match.isOver() ? 1 + match.getWinner() + 1 : s.isClosed() ? 4 : 0;
+        long key = ((rtt << 24 | stalls) << 4 | state) << 1 | (s.isDesynced() ? 1 : 0);
+        if (statusText != null && key == statusKey) {
+            return statusText;
+        }
+        String status;
+        if (match.isOver()) {
+            int winner = match.getWinner();
+            status = (winner < 0 ? "平局" : winner == s.getLocalPlayer() ? "你赢了！" : "你输了") + "  按 Esc 返回";
+        } else if (s.isClosed()) {
+            status = "连接已断开: " + s.getCloseReason() + "  按 Esc 返回";
+        } else {
+            status = String.format("往返 %.1fms  输入延迟 %d 帧  等待对手 %d 次", rtt / 10.0, match.getInputDelay(),
+                    stalls);
+        }
+        if (s.isDesynced()) {
+            status += "  状态不同步！";
+        }
+        statusText = status;
+        statusKey = key;
+        return status;
+    }
 }
 
 // 菜单栏
 class MenuBar extends JMenuBar {
-    public MenuBar(JFrame frame, GamePanel gamePanel, JPanel mainPanel) {
+    public MenuBar(JFrame frame, GamePanel gamePanel, VersusPanel versusPanel, JPanel mainPanel) {
         JMenu gameMenu = new JMenu("游戏");
         JMenuItem startItem = new JMenuItem("开始新游戏");
         startItem.addActionListener(new ActionListener() {
@@ -926,6 +1873,30 @@ class MenuBar extends JMenuBar {
         });
         gameMenu.add(pauseItem);
 
+        final JCheckBoxMenuItem activeRenderingItem = new JCheckBoxMenuItem("主动渲染模式");
+        activeRenderingItem.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                gamePanel.setActiveRendering(activeRenderingItem.isSelected());
+            }
+        });
+        gameMenu.add(activeRenderingItem);
+
+        final JCheckBoxMenuItem autoPlayItem = new JCheckBoxMenuItem("AI 演示");
+        autoPlayItem.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                gamePanel.setAutoPlay(autoPlayItem.isSelected());
+            }
+        });
+        gameMenu.add(autoPlayItem);
+
+        final JCheckBoxMenuItem recordItem = new JCheckBoxMenuItem("录制回放", gamePanel.isRecordReplays());
+        recordItem.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                gamePanel.setRecordReplays(recordItem.isSelected());
+            }
+        });
+        gameMenu.add(recordItem);
+
         JMenuItem exitItem = new JMenuItem("退出");
         exitItem.addActionListener(new ActionListener() {
             public void actionPerformed(ActionEvent e) {
@@ -936,6 +1907,46 @@ class MenuBar extends JMenuBar {
 
         add(gameMenu);
 
+        JMenu versusMenu = new JMenu("对战");
+        JMenuItem hostItem = new JMenuItem("创建对战...");
+        hostItem.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                String port = JOptionPane.showInputDialog(frame, "端口", GameConfig.VERSUS_PORT);
+                if (port != null) {
+                    try {
+                        int p = Integer.parseInt(port.trim());
+                        gamePanel.pause();
+                        versusPanel.host(p);
+                    } catch (NumberFormatException ex) {
+                        JOptionPane.showMessageDialog(frame, "端口无效: " + port, "对战", JOptionPane.ERROR_MESSAGE);
+                    }
+                }
+            }
+        });
+        versusMenu.add(hostItem);
+
+        JMenuItem joinItem = new JMenuItem("加入对战...");
+        joinItem.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                String address = JOptionPane.showInputDialog(frame, "主机[:端口]",
+                        "127.0.0.1:" + GameConfig.VERSUS_PORT);
+                if (address != null) {
+                    address = address.trim();
+                    int colon = address.lastIndexOf(':');
+                    try {
+                        int p = colon < 0 ? GameConfig.VERSUS_PORT : Integer.parseInt(address.substring(colon + 1));
+                        gamePanel.pause();
+                        versusPanel.join(colon < 0 ? address : address.substring(0, colon), p);
+                    } catch (NumberFormatException ex) {
+                        JOptionPane.showMessageDialog(frame, "端口无效: " + address, "对战", JOptionPane.ERROR_MESSAGE);
+                    }
+                }
+            }
+        });
+        versusMenu.add(joinItem);
+
+        add(versusMenu);
+
         JMenu viewMenu = new JMenu("查看");
         JMenuItem highScoreItem = new JMenuItem("高分榜");
         highScoreItem.addActionListener(new ActionListener() {
@@ -948,6 +1959,47 @@ class MenuBar extends JMenuBar {
         });
         viewMenu.add(highScoreItem);
 
+        JMenuItem timingItem = new JMenuItem("渲染统计");
+        timingItem.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                GameLoop loop = gamePanel.getGameLoop();
+                String message = String.join("\n", gamePanel.getMetrics().summary());
+                if (loop != null) {
+                    message += "\n\n循环线程\n帧: " + loop.getFrameStats() + "\n模拟步: " + loop.getTickStats();
+                }
+                JOptionPane.showMessageDialog(frame, message, "渲染统计", JOptionPane.INFORMATION_MESSAGE);
+            }
+        });
+        viewMenu.add(timingItem);
+
+        final JCheckBoxMenuItem overlayItem = new JCheckBoxMenuItem("性能浮层");
+        overlayItem.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                gamePanel.setMetricsOverlay(overlayItem.isSelected());
+            }
+        });
+        // F3 切换浮层后同步勾选状态
+        viewMenu.addMenuListener(new javax.swing.event.MenuListener() {
+            public void menuSelected(javax.swing.event.MenuEvent e) {
+                overlayItem.setSelected(gamePanel.isMetricsOverlay());
+            }
+
+            public void menuDeselected(javax.swing.event.MenuEvent e) {
+            }
+
+            public void menuCanceled(javax.swing.event.MenuEvent e) {
+            }
+        });
+        viewMenu.add(overlayItem);
+
+        final JCheckBoxMenuItem rasterItem = new JCheckBoxMenuItem("像素渲染", gamePanel.isRasterRendering());
+        rasterItem.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                gamePanel.setRasterRendering(rasterItem.isSelected());
+            }
+        });
+        viewMenu.add(rasterItem);
+
         add(viewMenu);
     }
 }
\ No newline at end of file
@@ -0,0 +1,402 @@
+package tetris.ai;
+
+import tetris.core.Board;
+import tetris.core.GameEngine;
+import tetris.core.ShapeTable;
+import tetris.core.Tetromino;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 自动玩家：枚举当前方块所有可到达的落点（各旋转 × 各列），用评价函数打分，
+ * 可选地再对下一个方块的全部落点向前看一步。候选落点在 ForkJoinPool 上并行评估。
+ * 操作通过 GameEngine.step 执行，因此录制回放和界面显示都照常工作。
+ *
+ * 搜索在棋盘行掩码的副本上进行，约定与 Board.collides 相同：墙壁位预先置 1，满行为 -1。
+ */
+public class AutoPlayer {
+    // 叶子任务评估的候选数，向前看时每个候选的代价大得多
+    private static final int LOOKAHEAD_LEAF_SIZE = 2;
+    private static final int LEAF_SIZE = 64;
+    // 单个方块最多执行的操作数，超出（例如被重力带偏）时直接落底
+    private static final int MAX_ACTIONS_PER_PIECE = 24;
+    private static final double GAME_OVER_SCORE = -1e9;
+
+    private final PlacementHeuristic heuristic;
+    private final boolean lookahead;
+    private final ForkJoinPool pool;
+    // 当前方块的计划
+    private long plannedSeed;
+    private int plannedPiece = -1;
+    private int targetRotation;
+    private int targetX;
+    private double targetScore;
+    private int actionsThisPiece;
+    private long decisions;
+
+    public AutoPlayer() {
+        this(new PlacementHeuristic(), true, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param lookahead 是否用下一个方块向前看一步
+     */
+    public AutoPlayer(PlacementHeuristic heuristic, boolean lookahead, ForkJoinPool pool) {
+        this.heuristic = heuristic;
+        this.lookahead = lookahead;
+        this.pool = pool;
+    }
+
+    /**
+     * 为当前方块选择落点
+     * @return 是否找到了落点（没有时计划为原地落底）
+     */
+    public boolean plan(GameEngine engine) {
+        decisions++;
+        plannedSeed = engine.getSeed();
+        plannedPiece = engine.getPiecesPlaced();
+        actionsThisPiece = 0;
+
+        Tetromino t = engine.getCurrentTetromino();
+        Search s = new Search(engine.getBoard(), t.getY(), t.getType(),
+                lookahead ? engine.getNextTetromino().getType() : 0);
+        s.count = enumerate(s, s.rows, t.getType(), t.getRotation(), t.getX(), t.getY() - s.top, s.rot, s.x, s.y);
+        targetRotation = t.getRotation();
+        targetX = t.getX();
+        targetScore = GAME_OVER_SCORE;
+        if (s.count == 0) {
+            return false;
+        }
+
+        int leaf = lookahead ? LOOKAHEAD_LEAF_SIZE : LEAF_SIZE;
+        if (s.count <= leaf) {
+            new EvaluateTask(s, 0, s.count, leaf).compute();
+        } else {
+            pool.invoke(new EvaluateTask(s, 0, s.count, leaf));
+        }
+        int best = 0;
+        for (int i = 1; i < s.count; i++) {
+            if (s.score[i] > s.score[best]) {
+                best = i;
+            }
+        }
+        targetRotation = s.rot[best];
+        targetX = s.x[best];
+        targetScore = s.score[best];
+        return true;
+    }
+
+    /**
+     * 按计划返回下一步操作，换了新方块时先重新规划。每次调用只返回一步，便于界面逐步演示。
+     */
+    public GameEngine.Action nextAction(GameEngine engine) {
+        if (engine.getPiecesPlaced() != plannedPiece || engine.getSeed() != plannedSeed) {
+            plan(engine);
+        }
+        Tetromino t = engine.getCurrentTetromino();
+        if (++actionsThisPiece > MAX_ACTIONS_PER_PIECE) {
+            return GameEngine.Action.HARD_DROP;
+        }
+        if (t.getRotation() != targetRotation) {
+            return GameEngine.Action.ROTATE;
+        }
+        if (t.getX() < targetX) {
+            return GameEngine.Action.RIGHT;
+        }
+        if (t.getX() > targetX) {
+            return GameEngine.Action.LEFT;
+        }
+        return GameEngine.Action.HARD_DROP;
+    }
+
+    // 丢弃当前计划，引擎被 reset 后调用
+    public void reset() {
+        plannedPiece = -1;
+    }
+
+    /**
+     * 放置当前方块（规划并执行到锁定为止）
+     */
+    public void playPiece(GameEngine engine) {
+        int placed = engine.getPiecesPlaced();
+        while (!engine.isGameOver() && engine.getPiecesPlaced() == placed) {
+            engine.step(nextAction(engine));
+        }
+    }
+
+    // 已做出的落点决策数
+    public long getDecisionCount() {
+        return decisions;
+    }
+
+    public int getTargetRotation() {
+        return targetRotation;
+    }
+
+    public int getTargetX() {
+        return targetX;
+    }
+
+    public double getTargetScore() {
+        return targetScore;
+    }
+
+    public boolean isLookahead() {
+        return lookahead;
+    }
+
+    // 一次搜索的输入和候选落点，候选的分数由各个任务并行写入各自的下标
+    // 只复制从 top 行到底部的窗口，窗口以上都是空行，巨型棋盘上的搜索开销只与活动区域有关
+    private static final class Search {
+        final int width;
+        final int height; // 窗口的行数，候选的 y 相对于窗口顶部
+        final int top;
+        final long emptyRow;
+        final long[] rows;
+        final int pieceType;
+        final int nextType; // 0 表示不向前看
+        final int[] rot;
+        final int[] x;
+        final int[] y;
+        final double[] score;
+        int count;
+
+        Search(Board board, int pieceY, int pieceType, int nextType) {
+            width = board.getWidth();
+            top = Math.max(0, Math.min(pieceY, board.getHeight() - board.getActiveRows()) - Board.SHAPE_WIDTH);
+            height = board.getHeight() - top;
+            emptyRow = board.getEmptyRow();
+            rows = new long[height];
+            board.copyRows(rows, top);
+            this.pieceType = pieceType;
+            this.nextType = nextType;
+            int capacity = maxCandidates(width);
+            rot = new int[capacity];
+            x = new int[capacity];
+            y = new int[capacity];
+            score = new double[capacity];
+        }
+    }
+
+    // 每个叶子任务自己的临时数组
+    private static final class Scratch {
+        final long[] first;
+        final long[] second;
+        final int[] heights;
+        final int[] rot;
+        final int[] x;
+        final int[] y;
+
+        Scratch(Search s) {
+            first = new long[s.height];
+            second = new long[s.height];
+            heights = new int[s.width];
+            int capacity = maxCandidates(s.width);
+            rot = new int[capacity];
+            x = new int[capacity];
+            y = new int[capacity];
+        }
+    }
+
+    private static int maxCandidates(int width) {
+        return ShapeTable.ROTATIONS * (width + Board.WALL + Board.SHAPE_WIDTH);
+    }
+
+    private final class EvaluateTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Search s;
+        private final int lo, hi, leaf;
+
+        EvaluateTask(Search s, int lo, int hi, int leaf) {
+            this.s = s;
+            this.lo = lo;
+            this.hi = hi;
+            this.leaf = leaf;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= leaf) {
+                Scratch scratch = new Scratch(s);
+                for (int i = lo; i < hi; i++) {
+                    s.score[i] = evaluate(s, i, scratch);
+                }
+            } else {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new EvaluateTask(s, lo, mid, leaf), new EvaluateTask(s, mid, hi, leaf));
+            }
+        }
+    }
+
+    // 候选 i 的分数：落下后（向前看时再放下一个方块的最佳落点）棋盘的评价
+    private double evaluate(Search s, int i, Scratch scratch) {
+        int shape = ShapeTable.index(s.pieceType, s.rot[i]);
+        int lines = place(s.rows, scratch.first, s.emptyRow, shape, s.x[i], s.y[i]);
+        if (s.nextType == 0) {
+            return score(scratch.first, s.emptyRow, lines, scratch.heights);
+        }
+        // 下一个方块从出生位置开始，放不下时视为游戏结束
+        int n = enumerate(s, scratch.first, s.nextType, 0, s.width / 2 - 2, 0, scratch.rot, scratch.x, scratch.y);
+        double best = GAME_OVER_SCORE;
+        for (int j = 0; j < n; j++) {
+            int next = ShapeTable.index(s.nextType, scratch.rot[j]);
+            int lines2 = place(scratch.first, scratch.second, s.emptyRow, next, scratch.x[j], scratch.y[j]);
+            best = Math.max(best, score(scratch.second, s.emptyRow, lines + lines2, scratch.heights));
+        }
+        return best;
+    }
+
+    /**
+     * 枚举从 (rotation, x, y) 出发可到达的落点：原地依次旋转，再左右平移，最后直接落底
+     * @return 落点数，结果写入 outRot/outX/outY
+     */
+    private static int enumerate(Search s, long[] rows, int type, int rotation, int x, int y,
+                                 int[] outRot, int[] outX, int[] outY) {
+        int count = 0;
+        for (int r = 0; r < ShapeTable.ROTATIONS; r++) {
+            int rot = (rotation + r) % ShapeTable.ROTATIONS;
+            int shape = ShapeTable.index(type, rot);
+            if (collides(rows, s.emptyRow, s.width, shape, x, y)) {
+                break; // 旋转被挡住，之后的旋转也到不了
+            }
+            int left = x;
+            while (!collides(rows, s.emptyRow, s.width, shape, left - 1, y)) {
+                left--;
+            }
+            int right = x;
+            while (!collides(rows, s.emptyRow, s.width, shape, right + 1, y)) {
+                right++;
+            }
+            for (int cx = left; cx <= right; cx++) {
+                int cy = y;
+                while (!collides(rows, s.emptyRow, s.width, shape, cx, cy + 1)) {
+                    cy++;
+                }
+                outRot[count] = rot;
+                outX[count] = cx;
+                outY[count] = cy;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // 与 Tetromino.collidesWithBoard 相同的检测，作用于行掩码副本
+    private static boolean collides(long[] rows, long emptyRow, int width, int shape, int x, int y) {
+        if (x < -Board.WALL || x >= width) {
+            return true;
+        }
+        int[] masks = ShapeTable.rowMasks(shape);
+        int top = y + ShapeTable.top(shape);
+        int shift = x + Board.WALL;
+        for (int i = 0; i < masks.length; i++) {
+            int r = top + i;
+            if (r >= rows.length) {
+                return true;
+            }
+            if (((long) masks[i] << shift & (r < 0 ? emptyRow : rows[r])) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 把 src 复制到 dst，在 (x, y) 处锁定形状并消除满行
+     * @return 消除的行数
+     */
+    private static int place(long[] src, long[] dst, long emptyRow, int shape, int x, int y) {
+        int height = src.length;
+        System.arraycopy(src, 0, dst, 0, height);
+        int[] masks = ShapeTable.rowMasks(shape);
+        int top = y + ShapeTable.top(shape);
+        int shift = x + Board.WALL;
+        boolean full = false;
+        for (int i = 0; i < masks.length; i++) {
+            int r = top + i;
+            if (r >= 0 && r < height) {
+                dst[r] |= (long) masks[i] << shift & ~emptyRow;
+                full |= dst[r] == -1L;
+            }
+        }
+        if (!full) {
+            return 0;
+        }
+        int write = height - 1;
+        for (int read = height - 1; read >= 0; read--) {
+            if (dst[read] != -1L) {
+                dst[write--] = dst[read];
+            }
+        }
+        int lines = write + 1;
+        for (int r = 0; r < lines; r++) {
+            dst[r] = emptyRow;
+        }
+        return lines;
+    }
+
+    // 计算列高度、空洞和起伏并打分，逐行用位运算同时处理所有列
+    private double score(long[] rows, long emptyRow, int lines, int[] heights) {
+        long field = ~emptyRow;
+        int height = rows.length;
+        java.util.Arrays.fill(heights, 0);
+        long covered = 0;
+        int holes = 0;
+        for (int r = 0; r < height; r++) {
+            long row = rows[r] & field;
+            long top = row & ~covered;
+            while (top != 0) {
+                heights[Long.numberOfTrailingZeros(top) - Board.WALL] = height - r;
+                top &= top - 1;
+            }
+            covered |= row;
+            holes += Long.bitCount(covered & ~row);
+        }
+        int aggregate = 0;
+        int bumpiness = 0;
+        for (int c = 0; c < heights.length; c++) {
+            aggregate += heights[c];
+            if (c > 0) {
+                bumpiness += Math.abs(heights[c] - heights[c - 1]);
+            }
+        }
+        return heuristic.evaluate(aggregate, lines, holes, bumpiness);
+    }
+
+    /**
+     * 无界面压力测试：java -cp tetris.jar tetris.ai.AutoPlayer [局数] [每局最多方块数] [--no-lookahead]
+     */
+    public static void main(String[] args) {
+        int games = 10;
+        int maxPieces = 2000;
+        boolean lookahead = true;
+        int positional = 0;
+        for (String arg : args) {
+            if ("--no-lookahead".equals(arg)) {
+                lookahead = false;
+            } else if (positional++ == 0) {
+                games = Integer.parseInt(arg);
+            } else {
+                maxPieces = Integer.parseInt(arg);
+            }
+        }
+        AutoPlayer player = new AutoPlayer(new PlacementHeuristic(), lookahead, ForkJoinPool.commonPool());
+        long totalLines = 0, totalPieces = 0;
+        long start = System.nanoTime();
+        for (int g = 0; g < games; g++) {
+            GameEngine engine = new GameEngine(g);
+            while (!engine.isGameOver() && engine.getPiecesPlaced() < maxPieces) {
+                player.playPiece(engine);
+            }
+            totalLines += engine.getLinesCleared();
+            totalPieces += engine.getPiecesPlaced();
+            System.out.printf("第 %d 局: 方块=%d 行数=%d 得分=%d%s%n", g + 1, engine.getPiecesPlaced(),
+                    engine.getLinesCleared(), engine.getScore(), engine.isGameOver() ? " 结束" : "");
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("向前看=%b 方块=%d 行数=%d 用时=%.2fs 决策/秒=%.0f%n", lookahead, totalPieces,
+                totalLines, seconds, player.getDecisionCount() / seconds);
+    }
+}
@@ -0,0 +1,40 @@
+package tetris.ai;
+
+/**
+ * 落点评价函数：对落下并消行后的棋盘按总高度、空洞、起伏和消除行数加权打分，分数越高越好。
+ * 默认权重来自常见的遗传算法调参结果。
+ */
+public class PlacementHeuristic {
+    private final double heightWeight;
+    private final double linesWeight;
+    private final double holesWeight;
+    private final double bumpinessWeight;
+
+    public PlacementHeuristic() {
+        this(-0.510066, 0.760666, -0.35663, -0.184483);
+    }
+
+    public PlacementHeuristic(double heightWeight, double linesWeight, double holesWeight, double bumpinessWeight) {
+        this.heightWeight = heightWeight;
+        this.linesWeight = linesWeight;
+        this.holesWeight = holesWeight;
+        this.bumpinessWeight = bumpinessWeight;
+    }
+
+    /**
+     * @param aggregateHeight 各列高度之和
+     * @param lines 消除的行数
+     * @param holes 上方有方块的空格数
+     * @param bumpiness 相邻列高度差的绝对值之和
+     */
+    public double evaluate(int aggregateHeight, int lines, int holes, int bumpiness) {
+        return heightWeight * aggregateHeight + linesWeight * lines
+                + holesWeight * holes + bumpinessWeight * bumpiness;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("高度=%.3f 行数=%.3f 空洞=%.3f 起伏=%.3f",
+                heightWeight, linesWeight, holesWeight, bumpinessWeight);
+    }
+}
@@ -0,0 +1,41 @@
+package tetris.core;
+
+import java.util.SplittableRandom;
+
+/**
+ * 7-bag 生成器：把七种方块放进一个袋子打乱后依次取出，取完再打乱一袋。
+ * 任意连续七个方块中每种类型最多间隔 12 个就会出现一次。
+ */
+public class BagPieceGenerator implements PieceGenerator {
+    private final int[] bag = new int[ShapeTable.TYPE_COUNT];
+    private SplittableRandom random;
+    private int position;
+
+    public BagPieceGenerator(long seed) {
+        reset(seed);
+    }
+
+    @Override
+    public void reset(long seed) {
+        random = new SplittableRandom(seed);
+        for (int i = 0; i < bag.length; i++) {
+            bag[i] = i + 1;
+        }
+        position = bag.length;
+    }
+
+    @Override
+    public int next() {
+        if (position == bag.length) {
+            // Fisher-Yates 洗牌
+            for (int i = bag.length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int type = bag[i];
+                bag[i] = bag[j];
+                bag[j] = type;
+            }
+            position = 0;
+        }
+        return bag[position++];
+    }
+}
@@ -0,0 +1,382 @@
+package tetris.core;
+
+/**
+ * 位棋盘：每行用一个位掩码记录占用情况，碰撞、锁定和满行检测都只需几次位运算。
+ * 另有一个紧凑的类型数组记录每格的方块类型，只供绘制使用。
+ *
+ * 每行掩码中第 (WALL + x) 位对应第 x 列，棋盘左右两侧的位预先置 1 作为墙壁，
+ * 因此越界检测和占用检测合并为同一次 AND，满行即整行掩码为 -1。
+ *
+ * 行数据存放在槽位里，通过 slots 间接索引：只有从底部起的 active 行（活动区域）占用槽位，
+ * 更高的行必然为空，不占存储。消行只移动槽位编号，被消除的槽位清空后回收，
+ * 所以内存和消行开销随活动区域增长，与棋盘总高度无关，可以支持上千行的巨型棋盘。
+ */
+public class Board {
+    // 左侧墙壁占用的位数，保证方块稍微越过左边界时移位量仍不为负
+    public static final int WALL = 4;
+    // 形状掩码的最大宽度（列数）
+    public static final int SHAPE_WIDTH = 4;
+    // 行掩码能容纳的最大列数
+    public static final int MAX_WIDTH = Long.SIZE - WALL - SHAPE_WIDTH;
+    // 初始分配的槽位数，活动区域超过时加倍
+    private static final int INITIAL_SLOTS = 32;
+
+    private final int width;
+    private final int height;
+    private long[] masks;        // 每个槽位的行占用掩码（含墙壁位），空闲槽位保持为空行
+    private byte[] cells;        // 每个槽位的方块类型，每槽 width 个，0 表示空
+    private int[] slots;         // slots[d] 为从底部数第 d 行所在的槽位，[active, 容量) 为空闲槽位
+    private int active;          // 占用槽位的行数，更高的行都是空行
+    private int[] freed = new int[SHAPE_WIDTH]; // 消行时回收的槽位
+    private final long emptyRow; // 只有墙壁位被置位的空行
+    // 列高度（天际线）：每列最高的方块距底部的格数，空列为 0，随锁定和消行增量维护
+    private final int[] heights;
+    // 上次消行以来被锁定方块写入过的行范围，消行只需检查这些行
+    private int dirtyTop;
+    private int dirtyBottom;
+    // 内容每次变化（锁定、消行、清空）时递增，供绘制缓存判断是否需要重建
+    private int version;
+
+    public Board(int width, int height) {
+        if (width < 1 || width > MAX_WIDTH || height < 1) {
+            throw new IllegalArgumentException("不支持的棋盘尺寸: " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.heights = new int[width];
+        this.emptyRow = ~(((1L << width) - 1) << WALL);
+        int capacity = Math.min(height, INITIAL_SLOTS);
+        this.masks = new long[capacity];
+        this.cells = new byte[capacity * width];
+        this.slots = new int[capacity];
+        for (int i = 0; i < capacity; i++) {
+            masks[i] = emptyRow;
+            slots[i] = i;
+        }
+        clear();
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    // 清空棋盘，只需清理活动区域
+    public void clear() {
+        for (int d = 0; d < active; d++) {
+            releaseSlot(slots[d]);
+        }
+        active = 0;
+        java.util.Arrays.fill(heights, 0);
+        dirtyTop = height;
+        dirtyBottom = -1;
+        version++;
+    }
+
+    /**
+     * 检测形状是否与墙壁、底部或已有方块重叠
+     * @param masks 形状每一行的列掩码，第 0 位对应 x 列
+     * @param x 形状左边界所在列
+     * @param y masks[0] 所在行，可以为负（棋盘上方）
+     */
+    public boolean collides(int[] masks, int x, int y) {
+        if (x < -WALL || x >= width) {
+            return true;
+        }
+        int shift = x + WALL;
+        for (int i = 0; i < masks.length; i++) {
+            int r = y + i;
+            if (r >= height) {
+                return true;
+            }
+            long m = (long) masks[i] << shift;
+            if ((m & (r < 0 ? emptyRow : row(r))) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 将形状写入棋盘，棋盘上方的部分被忽略
+     */
+    public void lock(int[] masks, int x, int y, int type) {
+        version++;
+        int shift = x + WALL;
+        for (int i = 0; i < masks.length; i++) {
+            int r = y + i;
+            if (r < 0 || r >= height) {
+                continue;
+            }
+            long m = ((long) masks[i] << shift) & ~emptyRow;
+            int slot = slotForWrite(r);
+            this.masks[slot] |= m;
+            if (r < dirtyTop) dirtyTop = r;
+            if (r > dirtyBottom) dirtyBottom = r;
+            int base = slot * width - WALL;
+            while (m != 0) {
+                int bit = Long.numberOfTrailingZeros(m);
+                cells[base + bit] = (byte) type;
+                if (heights[bit - WALL] < height - r) {
+                    heights[bit - WALL] = height - r;
+                }
+                m &= m - 1;
+            }
+        }
+    }
+
+    public boolean isRowFull(int row) {
+        return row(row) == -1L;
+    }
+
+    public boolean isRowEmpty(int row) {
+        return row(row) == emptyRow;
+    }
+
+    // 第 r 行（从上往下）的占用掩码，活动区域以上为空行
+    private long row(int r) {
+        int d = height - 1 - r;
+        return d < active ? masks[slots[d]] : emptyRow;
+    }
+
+    // 第 r 行所在的槽位，行在活动区域以上时先把活动区域扩展到这一行
+    private int slotForWrite(int r) {
+        int d = height - 1 - r;
+        if (d >= active) {
+            if (d >= slots.length) {
+                grow(d + 1);
+            }
+            active = d + 1; // 空闲槽位总是空行，直接纳入活动区域
+        }
+        return slots[d];
+    }
+
+    // 槽位容量加倍（不超过棋盘高度），已有槽位的编号和内容不变
+    private void grow(int minCapacity) {
+        int old = slots.length;
+        int capacity = Math.min(height, Math.max(minCapacity, old * 2));
+        masks = java.util.Arrays.copyOf(masks, capacity);
+        cells = java.util.Arrays.copyOf(cells, capacity * width);
+        slots = java.util.Arrays.copyOf(slots, capacity);
+        for (int i = old; i < capacity; i++) {
+            masks[i] = emptyRow;
+            slots[i] = i;
+        }
+    }
+
+    private void releaseSlot(int slot) {
+        masks[slot] = emptyRow;
+        java.util.Arrays.fill(cells, slot * width, (slot + 1) * width, (byte) 0);
+    }
+
+    /**
+     * 活动区域的行数：从底部起占用存储的行，更高的行都是空行
+     */
+    public int getActiveRows() {
+        return active;
+    }
+
+    /**
+     * 消除自上次调用以来被写入过的行中的满行，并一次性压缩棋盘。
+     * 只移动活动区域内被消除行以上的槽位编号，不复制行内容；
+     * 被消除的槽位清空后放回空闲区。不分配任何对象，被消除的行号（消除前的行号，从上到下）写入 out。
+     * @param out 接收被消除行号的缓冲区，长度至少为 Board.SHAPE_WIDTH
+     * @return 消除的行数
+     */
+    public int clearFullRows(int[] out) {
+        int lo = dirtyTop, hi = dirtyBottom;
+        dirtyTop = height;
+        dirtyBottom = -1;
+        int count = 0;
+        for (int r = lo; r <= hi; r++) {
+            if (row(r) == -1L) {
+                out[count++] = r;
+            }
+        }
+        if (count == 0) {
+            return 0;
+        }
+        version++;
+        // 从脏行范围的底部往上压缩槽位编号，满行的槽位暂存到 freed
+        if (freed.length < count) {
+            freed = new int[count];
+        }
+        int write = height - 1 - hi;
+        int n = 0;
+        for (int d = write; d < active; d++) {
+            int slot = slots[d];
+            if (masks[slot] == -1L) {
+                freed[n++] = slot;
+            } else {
+                slots[write++] = slot;
+            }
+        }
+        // 被消除的槽位清空后放到活动区域之后，成为空闲槽位
+        for (int i = 0; i < n; i++) {
+            releaseSlot(freed[i]);
+            slots[write + i] = freed[i];
+        }
+        active -= n;
+        updateHeights(lo, hi, count);
+        return count;
+    }
+
+    // 消行后更新列高度：顶部在脏行范围以上的列整体降低，顶部落在范围内的列向下重新查找
+    private void updateHeights(int lo, int hi, int count) {
+        for (int x = 0; x < width; x++) {
+            int topRow = height - heights[x];
+            if (topRow < lo) {
+                heights[x] -= count;
+            } else if (topRow <= hi) {
+                long bit = 1L << (x + WALL);
+                int r = Math.max(lo, height - active);
+                while (r < height && (row(r) & bit) == 0) {
+                    r++;
+                }
+                heights[x] = height - r;
+            }
+        }
+    }
+
+    /**
+     * 从底部推入 rows 行只在 hole 列留空的垃圾行，原有的行整体上移。
+     * 与消行一样只移动槽位编号；被挤出棋盘顶部的行直接回收。
+     * @return 是否有方块被挤出棋盘顶部
+     */
+    public boolean insertGarbage(int rows, int hole, int type) {
+        rows = Math.min(rows, height);
+        if (rows <= 0) {
+            return false;
+        }
+        version++;
+        boolean overflow = false;
+        int keep = Math.min(active, height - rows);
+        for (int d = keep; d < active; d++) {
+            overflow |= masks[slots[d]] != emptyRow;
+            releaseSlot(slots[d]);
+        }
+        if (slots.length < keep + rows) {
+            grow(keep + rows);
+        }
+        // [keep, keep + rows) 都是空闲槽位，取出来放到最底部，其余的行上移
+        if (freed.length < rows) {
+            freed = new int[rows];
+        }
+        System.arraycopy(slots, keep, freed, 0, rows);
+        System.arraycopy(slots, 0, slots, rows, keep);
+        long garbage = -1L & ~(1L << (hole + WALL));
+        for (int d = 0; d < rows; d++) {
+            int slot = freed[d];
+            slots[d] = slot;
+            masks[slot] = garbage;
+            java.util.Arrays.fill(cells, slot * width, (slot + 1) * width, (byte) type);
+            cells[slot * width + hole] = 0;
+        }
+        active = keep + rows;
+        for (int x = 0; x < width; x++) {
+            if (heights[x] > 0) {
+                heights[x] = Math.min(height, heights[x] + rows);
+            } else if (x != hole) {
+                heights[x] = rows;
+            }
+        }
+        if (dirtyBottom >= 0) {
+            dirtyTop = Math.max(0, dirtyTop - rows);
+            dirtyBottom -= rows;
+        }
+        return overflow;
+    }
+
+    /**
+     * 把每行的占用掩码（含墙壁位，与 collides 的约定相同）复制到 out，供搜索时在副本上模拟
+     */
+    public void copyRows(long[] out) {
+        copyRows(out, 0);
+    }
+
+    /**
+     * 只复制从 from 行到底部的部分，第 from 行写入 out[0]
+     */
+    public void copyRows(long[] out, int from) {
+        int top = Math.max(from, height - active);
+        java.util.Arrays.fill(out, 0, top - from, emptyRow);
+        for (int r = top; r < height; r++) {
+            out[r - from] = masks[slots[height - 1 - r]];
+        }
+    }
+
+    // 只有墙壁位被置位的空行掩码
+    public long getEmptyRow() {
+        return emptyRow;
+    }
+
+    /**
+     * 把每格的方块类型（按行优先排列）复制到 out
+     */
+    public void copyCells(byte[] out) {
+        int top = height - active;
+        java.util.Arrays.fill(out, 0, top * width, (byte) 0);
+        for (int r = top; r < height; r++) {
+            System.arraycopy(cells, slots[height - 1 - r] * width, out, r * width, width);
+        }
+    }
+
+    /**
+     * 用按行优先排列的方块类型整体替换棋盘内容，并重建行掩码和列高度
+     */
+    public void setCells(byte[] src) {
+        clear();
+        for (int r = 0; r < height; r++) {
+            long row = emptyRow;
+            for (int x = 0; x < width; x++) {
+                if (src[r * width + x] != 0) {
+                    row |= 1L << (x + WALL);
+                    if (heights[x] == 0) {
+                        heights[x] = height - r;
+                    }
+                }
+            }
+            if (row != emptyRow) {
+                int slot = slotForWrite(r);
+                masks[slot] = row;
+                System.arraycopy(src, r * width, cells, slot * width, width);
+            }
+        }
+    }
+
+    // 棋盘内容的版本号，内容没有变化时保持不变
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * 第 x 列的高度：最高的方块距底部的格数，空列为 0
+     */
+    public int getColumnHeight(int x) {
+        return heights[x];
+    }
+
+    // 获取某格的方块类型，0 表示空
+    public int getCell(int x, int y) {
+        int d = height - 1 - y;
+        return d < active ? cells[slots[d] * width + x] : 0;
+    }
+
+    public boolean isOccupied(int x, int y) {
+        return (row(y) & (1L << (x + WALL))) != 0;
+    }
+
+    /**
+     * 最高一列的高度，即堆叠顶部距底部的格数
+     */
+    public int getStackHeight() {
+        int max = 0;
+        for (int h : heights) {
+            max = Math.max(max, h);
+        }
+        return max;
+    }
+}
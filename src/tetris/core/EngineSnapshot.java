@@ -0,0 +1,86 @@
+package tetris.core;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 引擎状态快照：棋盘、当前方块、计分和方块序列的位置。
+ * 用于回放的关键帧，恢复时不需要从头重新模拟。对象可以反复复用。
+ */
+public class EngineSnapshot {
+    int width;
+    int height;
+    byte[] cells = new byte[0];
+    int pieceType;
+    int rotation;
+    int x;
+    int y;
+    int score;
+    int level;
+    int linesCleared;
+    int comboCount;
+    int piecesPlaced;
+    long drawn; // 从生成器取出的方块总数
+    int gravityAccumulator;
+    int lockFrames;
+    int lockResets;
+    boolean gameOver;
+
+    // 编码后的字节数
+    public int encodedSize() {
+        return 2 * 4 + (cells.length + 1) / 2 + 13 * 4 + 8;
+    }
+
+    /**
+     * 写入 buffer，方块类型按每格 4 位压缩
+     */
+    public void writeTo(ByteBuffer buffer) {
+        buffer.putInt(width).putInt(height);
+        for (int i = 0; i < cells.length; i += 2) {
+            int high = i + 1 < cells.length ? cells[i + 1] : 0;
+            buffer.put((byte) (cells[i] | high << 4));
+        }
+        buffer.putInt(pieceType).putInt(rotation).putInt(x).putInt(y);
+        buffer.putInt(score).putInt(level).putInt(linesCleared).putInt(comboCount).putInt(piecesPlaced);
+        buffer.putInt(gameOver ? 1 : 0);
+        buffer.putLong(drawn);
+        buffer.putInt(gravityAccumulator).putInt(lockFrames).putInt(lockResets);
+    }
+
+    // 从 buffer 读取 writeTo 写入的内容
+    public void readFrom(ByteBuffer buffer) {
+        width = buffer.getInt();
+        height = buffer.getInt();
+        if (cells.length != width * height) {
+            cells = new byte[width * height];
+        }
+        for (int i = 0; i < cells.length; i += 2) {
+            int packed = buffer.get();
+            cells[i] = (byte) (packed & 0xF);
+            if (i + 1 < cells.length) {
+                cells[i + 1] = (byte) (packed >> 4 & 0xF);
+            }
+        }
+        pieceType = buffer.getInt();
+        rotation = buffer.getInt();
+        x = buffer.getInt();
+        y = buffer.getInt();
+        score = buffer.getInt();
+        level = buffer.getInt();
+        linesCleared = buffer.getInt();
+        comboCount = buffer.getInt();
+        piecesPlaced = buffer.getInt();
+        gameOver = buffer.getInt() != 0;
+        drawn = buffer.getLong();
+        gravityAccumulator = buffer.getInt();
+        lockFrames = buffer.getInt();
+        lockResets = buffer.getInt();
+    }
+
+    public int getPiecesPlaced() {
+        return piecesPlaced;
+    }
+
+    public int getScore() {
+        return score;
+    }
+}
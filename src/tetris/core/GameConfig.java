@@ -9,39 +9,64 @@ public class GameConfig {
     public static final int BOARD_HEIGHT = 20;
     public static final int CELL_SIZE = 30;
     public static final int SIDEBAR_WIDTH = 120;
+    public static final int MAX_BOARD_PIXELS = 900; // 宽棋盘缩小格子，棋盘区域最宽的像素数
+    public static final int TARGET_FPS = 60; // 主动渲染模式的目标帧率
+    public static final boolean RASTER_RENDERING = true; // 棋盘直接写入图像像素，false 时用 Graphics2D 逐格绘制
+
+    // 动画配置（毫秒）
+    public static final int ROW_FLASH_MS = 100; // 被消除的行闪烁
+    public static final int ROW_COLLAPSE_MS = 150; // 上方的方块落到新位置
+    public static final int LEVEL_UP_MS = 1200; // 升级提示
+    public static final int GAME_OVER_FADE_MS = 400; // 游戏结束浮层淡入
+    
+    // 对战配置
+    public static final int VERSUS_PORT = 7777; // 对战默认端口
+    public static final int INPUT_DELAY_FRAMES = 3; // 本地输入延迟几帧生效，网络往返在这段时间内完成就不会卡顿
+    public static final int[] GARBAGE_LINES = {0, 0, 1, 2, 4}; // 一次消除 n 行送给对手的垃圾行数
+    public static final int GARBAGE_TYPE = 8; // 垃圾行方块的类型，排在七种方块之后
     
     // 游戏机制配置
     public static final int BASE_SPEED = 800; // 基础下落速度（毫秒）
-    public static final double SPEED_FACTOR = 1.5; // 速度增加的指数系数
-    public static final double SPEED_MULTIPLIER = 50.0; // 速度增加的乘数
+    public static final int FRAME_RATE = 60; // 模拟帧率，重力按每帧下落的格数计算
+    public static final int MIN_GRAVITY_DELAY = 100; // 普通模式下每格最短下落间隔（毫秒）
+    public static final int MAX_GRAVITY = 20; // 最大重力（格/帧），20G 即瞬间落底
+    public static final int GRAVITY_LEVELS = 30; // 重力表覆盖的关卡数，更高关卡沿用最后一项
+    public static final int LOCK_DELAY_FRAMES = 30; // 落地后到锁定的帧数
+    public static final int MAX_LOCK_RESETS = 15; // 落地后移动或旋转最多重置锁定计时的次数
+    public static final double SPEED_FACTOR = 1.2; // 速度增加的指数系数 - 降低，使难度增加更平缓
+    public static final double SPEED_MULTIPLIER = 40.0; // 速度增加的乘数 - 降低
+    public static final boolean USE_COUNTDOWN_TIMER = false; // 修改：禁用倒计时，改为无限制模式
+    public static final int BASE_COUNTDOWN = 120; // 修改：每关基础倒计时增加到120秒
+    public static final int COUNTDOWN_DECREASE = 0; // 修改：关卡提升不减少时间
+
+    // 方块序列配置
+    public static final boolean USE_SEVEN_BAG = false; // true 使用 7-bag 生成器，false 为原来的均匀随机
+    public static final int PREVIEW_COUNT = 1; // 预览队列长度
+
+    // 回放录制配置
+    public static final boolean RECORD_REPLAYS = false; // 每局自动录制回放，默认关闭，可在菜单中打开
+    public static final String REPLAY_DIR = "replays"; // 回放文件目录
+    public static final int KEYFRAME_INTERVAL = 50; // 每放置多少个方块插入一个关键帧
+
+    // 演示模式中自动玩家每步操作的间隔（毫秒）
+    public static final int AUTO_PLAY_DELAY_MS = 60;
+
+    // 按键自动重复配置
+    public static final int DAS_MS = 170; // 按住左右键后开始自动重复的延迟（毫秒）
+    public static final int ARR_MS = 50; // 左右自动重复的间隔（毫秒），0 表示立即移到底
+    public static final int SOFT_DROP_MS = 50; // 按住下键时软降的间隔（毫秒）
     
     // 积分系统配置
     public static final int BASE_SCORE = 100; // 基础分数
     public static final double COMBO_MULTIPLIER = 0.2; // 连击加成系数
     public static final int LINES_PER_LEVEL = 10; // 每消除10行升一级
-    
-    /**
-     * 根据关卡计算下落速度
-     */
-    public static int calculateSpeed(int level) {
-        return (int) (BASE_SPEED - Math.pow(level, SPEED_FACTOR) * SPEED_MULTIPLIER);
-    }
+    public static final int HIGH_SCORE_COUNT = 10; // 高分榜保留和显示的名次数
+    public static final String HIGH_SCORE_FILE = "highscores.txt";
     
     /**
      * 根据消除行数和连击次数计算分数
      */
     public static int calculateScore(int lines, int combo, int level) {
-        if (lines <= 0) return 0;
-        
-        // 基础分数基于消除行数（单行=100，双行=200，三行=400，四行=800）
-        int baseScore = BASE_SCORE * (int)Math.pow(2, lines-1);
-        
-        // 连击加成
-        double comboMultiplier = 1.0 + (combo * COMBO_MULTIPLIER);
-        
-        // 关卡系数
-        double levelMultiplier = 1.0 + (level * 0.5);
-        
-        return (int)(baseScore * comboMultiplier * levelMultiplier);
+        return GameRules.DEFAULT.calculateScore(lines, combo, level);
     }
 }
@@ -0,0 +1,566 @@
+package tetris.core;
+
+import tetris.metrics.LineClearEvent;
+import tetris.metrics.PieceLockEvent;
+
+/**
+ * 无界面的游戏引擎：包含移动、重力、锁定、消行、计分、升级和生成方块等全部规则。
+ * 重力按帧推进（frame），每帧按当前关卡累积小数格，落地后经过锁定延迟才锁定。
+ * 不依赖 AWT/Swing，可在无显示环境下运行，也可用于批量模拟。
+ * 同一个种子和同一串操作总会得到相同的结果。
+ */
+public class GameEngine {
+    // 玩家操作
+    public enum Action {
+        LEFT, RIGHT, SOFT_DROP, ROTATE, HARD_DROP
+    }
+
+    /**
+     * 引擎事件回调，在事件生效之前调用，用于录制回放
+     */
+    public interface Listener {
+        // 即将执行一次玩家操作
+        void onAction(Action action);
+
+        // 即将执行一次重力下落
+        void onTick();
+
+        // 即将推进一帧
+        void onFrame();
+
+        // 关卡被直接设置
+        void onLevelSet(int level);
+    }
+
+    private final Board board;
+    private final int[] clearedRows;
+    private final PieceQueue queue;
+    private long seed;
+
+    // 当前方块和下一个方块的预览对象在整局中复用
+    private final Tetromino currentTetromino = new Tetromino(1, 0, 0);
+    private final Tetromino nextTetromino = new Tetromino(1, 0, 0);
+    private int score;
+    private int level;
+    private int linesCleared;
+    private int comboCount;
+    private int lastClearedCount; // 最近一次锁定消除的行数
+    private int piecesPlaced;
+    private boolean gameOver;
+    private Listener listener;
+    private GameRules rules = GameRules.DEFAULT;
+    // 帧重力：累积的小数格（单位 GameRules.ONE_CELL），以及落地后的锁定计时
+    private int gravityAccumulator;
+    private int lockFrames;
+    private int lockResets;
+
+    // 按键自动重复（DAS/ARR），时间均为 System.nanoTime 纳秒
+    private long dasNanos = GameConfig.DAS_MS * 1000000L;
+    private long arrNanos = GameConfig.ARR_MS * 1000000L;
+    private long softDropNanos = GameConfig.SOFT_DROP_MS * 1000000L;
+    private boolean leftHeld, rightHeld, softDropHeld;
+    private Action shiftAction; // 正在自动重复的左右方向，后按下的优先
+    private long nextShiftAt;
+    private long nextSoftDropAt;
+
+    public GameEngine(long seed) {
+        this(GameConfig.BOARD_WIDTH, GameConfig.BOARD_HEIGHT, seed);
+    }
+
+    public GameEngine(int width, int height, long seed) {
+        this(width, height, seed, GameConfig.USE_SEVEN_BAG ? new BagPieceGenerator(seed)
+                : new RandomPieceGenerator(seed), GameConfig.PREVIEW_COUNT);
+    }
+
+    /**
+     * @param generator 方块序列生成器，由引擎按种子重置
+     * @param previewCount 预览队列长度
+     */
+    public GameEngine(int width, int height, long seed, PieceGenerator generator, int previewCount) {
+        board = new Board(width, height);
+        clearedRows = new int[height];
+        queue = new PieceQueue(generator, previewCount);
+        reset(seed);
+    }
+
+    /**
+     * 用新的种子开始一局新游戏
+     */
+    public void reset(long seed) {
+        this.seed = seed;
+        queue.reset(seed);
+        board.clear();
+        score = 0;
+        level = 1;
+        linesCleared = 0;
+        comboCount = 0;
+        lastClearedCount = 0;
+        piecesPlaced = 0;
+        gameOver = false;
+        leftHeld = rightHeld = softDropHeld = false;
+        shiftAction = null;
+        spawn();
+    }
+
+    /**
+     * 设置自动重复时间（毫秒）
+     * @param das 按住左右键后开始重复的延迟
+     * @param arr 左右重复的间隔，0 表示立即移到底
+     * @param softDrop 按住下键时软降的间隔
+     */
+    public void setAutoRepeat(int das, int arr, int softDrop) {
+        dasNanos = das * 1000000L;
+        arrNanos = arr * 1000000L;
+        softDropNanos = Math.max(1, softDrop) * 1000000L;
+    }
+
+    /**
+     * 按下按键：立即执行一次操作，左右和下键开始按 DAS/ARR 计时
+     * @param nanos 按下的时间（System.nanoTime）
+     * @return 是否有方块被锁定
+     */
+    public boolean press(Action action, long nanos) {
+        if (gameOver) return false;
+
+        switch (action) {
+            case LEFT:
+                leftHeld = true;
+                shiftAction = action;
+                nextShiftAt = nanos + dasNanos;
+                break;
+            case RIGHT:
+                rightHeld = true;
+                shiftAction = action;
+                nextShiftAt = nanos + dasNanos;
+                break;
+            case SOFT_DROP:
+                softDropHeld = true;
+                nextSoftDropAt = nanos + softDropNanos;
+                break;
+            default:
+                break;
+        }
+        return step(action);
+    }
+
+    /**
+     * 松开按键，停止对应的自动重复。同时按住左右时松开一个，另一个重新开始计 DAS。
+     */
+    public void release(Action action, long nanos) {
+        switch (action) {
+            case LEFT:
+                leftHeld = false;
+                break;
+            case RIGHT:
+                rightHeld = false;
+                break;
+            case SOFT_DROP:
+                softDropHeld = false;
+                return;
+            default:
+                return;
+        }
+        if (action == shiftAction) {
+            shiftAction = leftHeld ? Action.LEFT : rightHeld ? Action.RIGHT : null;
+            nextShiftAt = nanos + dasNanos;
+        }
+    }
+
+    /**
+     * 补发截至 nanos 应产生的自动重复操作
+     * @return 是否有方块被锁定
+     */
+    public boolean updateInput(long nanos) {
+        if (gameOver) return false;
+
+        if (shiftAction != null && nanos >= nextShiftAt) {
+            if (arrNanos <= 0) {
+                // 立即移到底，之后每毫秒检查一次，让新生成的方块也贴住墙
+                for (int i = 0; i < board.getWidth(); i++) {
+                    step(shiftAction);
+                }
+                nextShiftAt = nanos + 1000000L;
+            } else {
+                long repeats = (nanos - nextShiftAt) / arrNanos + 1;
+                for (long i = Math.min(repeats, board.getWidth()); i > 0; i--) {
+                    step(shiftAction);
+                }
+                nextShiftAt += repeats * arrNanos;
+            }
+        }
+
+        boolean locked = false;
+        while (softDropHeld && !gameOver && nanos >= nextSoftDropAt) {
+            nextSoftDropAt += softDropNanos;
+            if (step(Action.SOFT_DROP)) {
+                // 锁定后新方块从当前时刻重新计时，不把积压的软降带给它
+                locked = true;
+                nextSoftDropAt = nanos + softDropNanos;
+            }
+        }
+        return locked;
+    }
+
+    /**
+     * 下一次自动重复的时间，没有按键处于重复状态时返回 Long.MAX_VALUE
+     */
+    public long getNextRepeatNanos() {
+        long next = Long.MAX_VALUE;
+        if (gameOver) return next;
+        if (shiftAction != null) next = nextShiftAt;
+        if (softDropHeld) next = Math.min(next, nextSoftDropAt);
+        return next;
+    }
+
+    /**
+     * 执行一次玩家操作
+     * @return 操作后是否有方块被锁定
+     */
+    public boolean step(Action action) {
+        if (gameOver) return false;
+        if (listener != null) listener.onAction(action);
+
+        Tetromino t = currentTetromino;
+        switch (action) {
+            case LEFT:
+                t.move(-1, 0);
+                if (t.collidesWithBoard(board)) {
+                    t.move(1, 0);
+                } else {
+                    resetLockDelay();
+                }
+                return false;
+            case RIGHT:
+                t.move(1, 0);
+                if (t.collidesWithBoard(board)) {
+                    t.move(-1, 0);
+                } else {
+                    resetLockDelay();
+                }
+                return false;
+            case SOFT_DROP:
+                // 落地时不锁定，由 frame 的锁定延迟处理，软降不会跳过锁定延迟
+                t.move(0, 1);
+                if (t.collidesWithBoard(board)) {
+                    t.move(0, -1);
+                } else {
+                    lockFrames = 0;
+                }
+                return false;
+            case ROTATE:
+                t.rotate();
+                if (t.collidesWithBoard(board)) {
+                    t.rotateBack();
+                } else {
+                    resetLockDelay();
+                }
+                return false;
+            case HARD_DROP:
+                t.move(0, t.dropDistance(board));
+                lockCurrent();
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 重力下落一格，落不下去时锁定方块
+     * @return 是否有方块被锁定
+     */
+    public boolean tick() {
+        if (gameOver) return false;
+        if (listener != null) listener.onTick();
+        return fall();
+    }
+
+    /**
+     * 推进一帧：按当前关卡的重力累积下落，落地后经过 LOCK_DELAY_FRAMES 帧锁定
+     * @return 是否有方块被锁定
+     */
+    public boolean frame() {
+        if (gameOver) return false;
+        if (listener != null) listener.onFrame();
+
+        gravityAccumulator += rules.gravity(level);
+        int cells = gravityAccumulator / GameRules.ONE_CELL;
+        int remaining = currentTetromino.dropDistance(board);
+        if (cells > 0) {
+            int drop = Math.min(cells, remaining);
+            currentTetromino.move(0, drop);
+            remaining -= drop;
+            // 落地后不保留多余的重力
+            gravityAccumulator = remaining == 0 ? 0 : gravityAccumulator - cells * GameRules.ONE_CELL;
+            if (drop > 0) {
+                lockFrames = 0;
+            }
+        }
+        if (remaining > 0) {
+            lockFrames = 0;
+            return false;
+        }
+        if (++lockFrames >= GameConfig.LOCK_DELAY_FRAMES) {
+            lockCurrent();
+            return true;
+        }
+        return false;
+    }
+
+    // 落地后成功移动或旋转时重新开始锁定计时，次数有上限，防止无限拖延
+    private void resetLockDelay() {
+        if (lockFrames > 0 && lockResets < GameConfig.MAX_LOCK_RESETS) {
+            lockFrames = 0;
+            lockResets++;
+        }
+    }
+
+    private boolean fall() {
+        currentTetromino.move(0, 1);
+        if (currentTetromino.collidesWithBoard(board)) {
+            currentTetromino.move(0, -1);
+            lockCurrent();
+            return true;
+        }
+        return false;
+    }
+
+    private void lockCurrent() {
+        // JFR 未开启时事件对象会被 JIT 消除，不产生开销
+        PieceLockEvent event = new PieceLockEvent();
+        event.begin();
+        int type = currentTetromino.getType();
+        currentTetromino.lockToBoard(board);
+        piecesPlaced++;
+        clearCompleteRows();
+        spawn();
+        event.end();
+        if (event.shouldCommit()) {
+            event.pieceType = type;
+            event.piecesPlaced = piecesPlaced;
+            event.gameOver = gameOver;
+            event.commit();
+        }
+    }
+
+    private void clearCompleteRows() {
+        LineClearEvent event = new LineClearEvent();
+        event.begin();
+        // 只检测刚锁定的方块所在的行，并一次性压缩棋盘
+        int lines = board.clearFullRows(clearedRows);
+        lastClearedCount = lines;
+
+        if (lines > 0) {
+            comboCount++; // 增加连击计数
+            linesCleared += lines;
+            int gained = rules.calculateScore(lines, comboCount, level);
+            score += gained;
+            checkLevelUp();
+            event.end();
+            if (event.shouldCommit()) {
+                event.rows = lines;
+                event.combo = comboCount;
+                event.scoreGained = gained;
+                event.commit();
+            }
+        } else {
+            comboCount = 0; // 重置连击计数
+        }
+    }
+
+    private void checkLevelUp() {
+        // 每消除 LINES_PER_LEVEL 行升一级
+        int newLevel = rules.levelForLines(linesCleared);
+        if (newLevel > level) {
+            level = newLevel;
+        }
+    }
+
+    // 从预览队列生成下一个方块，出生位置被占用时游戏结束
+    private void spawn() {
+        gravityAccumulator = 0;
+        lockFrames = 0;
+        lockResets = 0;
+        currentTetromino.reset(queue.take(), board.getWidth() / 2 - 2, getSpawnY());
+        nextTetromino.reset(queue.peek(0), 0, 0);
+        if (currentTetromino.collidesWithBoard(board)) {
+            gameOver = true;
+        }
+    }
+
+    /**
+     * 对战模式：从底部推入 lines 行只在 hole 列留空的垃圾行。活动方块与上移后的棋盘重叠时跟着上移，
+     * 仍然重叠或有方块被挤出棋盘顶部时游戏结束
+     */
+    public void addGarbage(int lines, int hole) {
+        if (gameOver || lines <= 0) return;
+        boolean overflow = board.insertGarbage(lines, hole, GameConfig.GARBAGE_TYPE);
+        for (int i = 0; i < lines && currentTetromino.collidesWithBoard(board); i++) {
+            currentTetromino.move(0, -1);
+        }
+        if (overflow || currentTetromino.collidesWithBoard(board)) {
+            gameOver = true;
+        }
+    }
+
+    /**
+     * 方块的出生行：标准高度的棋盘从顶部出生；更高的巨型棋盘在堆叠顶部以上一个标准棋盘高度处出生，
+     * 下落距离不随棋盘总高度增长
+     */
+    public int getSpawnY() {
+        return Math.max(0, board.getHeight() - board.getStackHeight() - GameConfig.BOARD_HEIGHT);
+    }
+
+    public void setLevel(int level) {
+        if (listener != null) listener.onLevelSet(level);
+        this.level = level;
+    }
+
+    // 设置速度和计分规则，对之后的计分和升级生效
+    public void setRules(GameRules rules) {
+        this.rules = rules;
+    }
+
+    public GameRules getRules() {
+        return rules;
+    }
+
+    // 设置事件回调，null 表示不再回调
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 把当前状态保存到快照中（按键自动重复的状态不在其中）
+     */
+    public void saveSnapshot(EngineSnapshot s) {
+        s.width = board.getWidth();
+        s.height = board.getHeight();
+        if (s.cells.length != s.width * s.height) {
+            s.cells = new byte[s.width * s.height];
+        }
+        board.copyCells(s.cells);
+        s.pieceType = currentTetromino.getType();
+        s.rotation = currentTetromino.getRotation();
+        s.x = currentTetromino.getX();
+        s.y = currentTetromino.getY();
+        s.score = score;
+        s.level = level;
+        s.linesCleared = linesCleared;
+        s.comboCount = comboCount;
+        s.piecesPlaced = piecesPlaced;
+        s.drawn = queue.getDrawnCount();
+        s.gravityAccumulator = gravityAccumulator;
+        s.lockFrames = lockFrames;
+        s.lockResets = lockResets;
+        s.gameOver = gameOver;
+    }
+
+    /**
+     * 恢复到快照的状态，快照必须来自同一种子、同一尺寸和同一生成器的引擎
+     */
+    public void restoreSnapshot(EngineSnapshot s) {
+        if (s.width != board.getWidth() || s.height != board.getHeight()) {
+            throw new IllegalArgumentException("快照的棋盘尺寸不一致: " + s.width + "x" + s.height);
+        }
+        board.setCells(s.cells);
+        queue.restore(seed, s.drawn);
+        currentTetromino.reset(s.pieceType, s.x, s.y);
+        for (int i = 0; i < s.rotation; i++) {
+            currentTetromino.rotate();
+        }
+        nextTetromino.reset(queue.peek(0), 0, 0);
+        score = s.score;
+        level = s.level;
+        linesCleared = s.linesCleared;
+        comboCount = s.comboCount;
+        lastClearedCount = 0;
+        piecesPlaced = s.piecesPlaced;
+        gameOver = s.gameOver;
+        gravityAccumulator = s.gravityAccumulator;
+        lockFrames = s.lockFrames;
+        lockResets = s.lockResets;
+        leftHeld = rightHeld = softDropHeld = false;
+        shiftAction = null;
+    }
+
+    public PieceGenerator getPieceGenerator() {
+        return queue.getGenerator();
+    }
+
+    // 当前关卡的重力（每帧下落的格数，单位 GameRules.ONE_CELL）
+    public int getGravity() {
+        return rules.gravity(level);
+    }
+
+    public Board getBoard() {
+        return board;
+    }
+
+    public Tetromino getCurrentTetromino() {
+        return currentTetromino;
+    }
+
+    /**
+     * 影子方块（当前方块直接落底后的位置）的 y 坐标
+     */
+    public int getGhostY() {
+        return currentTetromino.getY() + currentTetromino.dropDistance(board);
+    }
+
+    /**
+     * 下一个方块（原点在 (0, 0)），对象在整局中复用，调用方不得修改
+     */
+    public Tetromino getNextTetromino() {
+        return nextTetromino;
+    }
+
+    // 第 i 个预览的方块类型，0 为下一个
+    public int getPreviewType(int i) {
+        return queue.peek(i);
+    }
+
+    public int getPreviewCount() {
+        return queue.length();
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public int getLinesCleared() {
+        return linesCleared;
+    }
+
+    public int getComboCount() {
+        return comboCount;
+    }
+
+    public int getPiecesPlaced() {
+        return piecesPlaced;
+    }
+
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    // 最近一次锁定消除的行数
+    public int getLastClearedCount() {
+        return lastClearedCount;
+    }
+
+    /**
+     * 最近一次锁定消除的行号（消除前，从上到下），只有前 getLastClearedCount() 个有效。
+     * 返回共享数组，调用方不得修改。
+     */
+    public int[] getLastClearedRows() {
+        return clearedRows;
+    }
+}
@@ -0,0 +1,152 @@
+package tetris.core;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 独立线程上的游戏循环：基于 System.nanoTime 的固定步长模拟，加上按目标帧率呈现画面。
+ * 重力节奏由累积的真实时间决定，不受事件分发线程繁忙或定时器合并的影响。
+ */
+public class GameLoop implements Runnable {
+    // 单帧内最多补跑的模拟步数，防止卡顿后追赶过多
+    private static final int MAX_STEPS_PER_FRAME = 8;
+
+    /**
+     * 循环回调，step 和 render 都在循环线程上调用
+     */
+    public interface Listener {
+        // 处理排队的输入命令和按键自动重复，每轮循环开始时调用
+        void processInput();
+
+        // 下一次按键自动重复的时间（System.nanoTime），没有时返回 Long.MAX_VALUE
+        long getNextInputNanos();
+
+        // 当前是否推进模拟（暂停、未开始或游戏结束时返回 false）
+        boolean isSimulating();
+
+        // 模拟步长（纳秒），固定为一帧的时长；重力和锁定延迟由引擎按帧计算，与步长无关
+        long getStepNanos();
+
+        // 执行一个固定步长的模拟
+        void step();
+
+        // 呈现一帧
+        void render();
+    }
+
+    private final Listener listener;
+    private final long frameNanos;
+    private final TimingStats tickStats = new TimingStats();
+    private final TimingStats frameStats = new TimingStats();
+    private volatile boolean running;
+    private volatile Thread thread;
+
+    public GameLoop(Listener listener, int targetFps) {
+        this.listener = listener;
+        this.frameNanos = 1000000000L / targetFps;
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        thread = new Thread(this, "game-loop");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 停止循环并等待线程退出
+     */
+    public void stop() {
+        Thread t;
+        synchronized (this) {
+            running = false;
+            t = thread;
+            thread = null;
+        }
+        if (t != null && t != Thread.currentThread()) {
+            LockSupport.unpark(t);
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 有新的输入时唤醒循环线程，不必等到下一帧才处理
+     */
+    public void wakeUp() {
+        Thread t = thread;
+        if (t != null) {
+            LockSupport.unpark(t);
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void run() {
+        long last = System.nanoTime();
+        long nextFrame = last;
+        long accumulator = 0;
+        while (running) {
+            listener.processInput();
+
+            long now = System.nanoTime();
+            if (listener.isSimulating()) {
+                accumulator += now - last;
+            } else {
+                accumulator = 0;
+            }
+            last = now;
+
+            long step = listener.getStepNanos();
+            int steps = 0;
+            while (accumulator >= step && steps < MAX_STEPS_PER_FRAME && listener.isSimulating()) {
+                long start = System.nanoTime();
+                listener.step();
+                tickStats.record(System.nanoTime() - start);
+                accumulator -= step;
+                steps++;
+                step = listener.getStepNanos();
+            }
+            if (steps == MAX_STEPS_PER_FRAME) {
+                // 落后太多时丢弃积压，而不是一直追赶
+                accumulator %= step;
+            }
+
+            if (now >= nextFrame) {
+                long start = System.nanoTime();
+                listener.render();
+                frameStats.record(System.nanoTime() - start);
+                nextFrame += frameNanos;
+                if (nextFrame < now) {
+                    nextFrame = now + frameNanos;
+                }
+            }
+
+            // 睡到下一帧、下一个模拟步或下一次按键重复，取最早者；新输入会提前唤醒
+            long wake = Math.min(nextFrame, listener.getNextInputNanos());
+            if (listener.isSimulating()) {
+                wake = Math.min(wake, now + step - accumulator);
+            }
+            long sleep = wake - System.nanoTime();
+            if (sleep > 0) {
+                LockSupport.parkNanos(this, sleep);
+            }
+        }
+    }
+
+    // 每个模拟步的耗时
+    public TimingStats getTickStats() {
+        return tickStats;
+    }
+
+    // 每帧呈现的耗时
+    public TimingStats getFrameStats() {
+        return frameStats;
+    }
+}
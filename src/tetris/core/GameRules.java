@@ -0,0 +1,125 @@
+package tetris.core;
+
+/**
+ * 可调的速度和计分曲线。GameConfig 中的常量是默认值，
+ * 批量模拟可以为每个引擎设置不同的参数来比较曲线。
+ *
+ * 重力以每帧下落的格数表示（定点数，ONE_CELL 为一格），每关的值在构造时一次算好放进表里。
+ */
+public class GameRules {
+    // 重力的定点单位：一格
+    public static final int ONE_CELL = 1 << 16;
+
+    // 使用 GameConfig 常量的默认规则
+    public static final GameRules DEFAULT = new GameRules(GameConfig.BASE_SPEED, GameConfig.SPEED_FACTOR,
+            GameConfig.SPEED_MULTIPLIER, GameConfig.BASE_SCORE, GameConfig.COMBO_MULTIPLIER,
+            GameConfig.LINES_PER_LEVEL);
+    // 高速模式：去掉最短下落间隔，曲线一直加速到 20G
+    public static final GameRules HIGH_SPEED = DEFAULT.withMinGravityDelay(0);
+    // 20G 模式：每一关都瞬间落底
+    public static final GameRules TWENTY_G = DEFAULT.withMinGravityDelay(-1);
+
+    private final int baseSpeed;
+    private final double speedFactor;
+    private final double speedMultiplier;
+    private final int baseScore;
+    private final double comboMultiplier;
+    private final int linesPerLevel;
+    private final double minGravityDelay;
+    private final int[] gravityTable; // 下标为关卡
+
+    public GameRules(int baseSpeed, double speedFactor, double speedMultiplier,
+                     int baseScore, double comboMultiplier, int linesPerLevel) {
+        this(baseSpeed, speedFactor, speedMultiplier, baseScore, comboMultiplier, linesPerLevel,
+                GameConfig.MIN_GRAVITY_DELAY);
+    }
+
+    /**
+     * @param minGravityDelay 每格最短下落间隔（毫秒），0 表示不限制（最快到 MAX_GRAVITY），负数表示所有关卡都是 MAX_GRAVITY
+     */
+    public GameRules(int baseSpeed, double speedFactor, double speedMultiplier,
+                     int baseScore, double comboMultiplier, int linesPerLevel, double minGravityDelay) {
+        if (linesPerLevel < 1) {
+            throw new IllegalArgumentException("每关行数至少为 1: " + linesPerLevel);
+        }
+        this.baseSpeed = baseSpeed;
+        this.speedFactor = speedFactor;
+        this.speedMultiplier = speedMultiplier;
+        this.baseScore = baseScore;
+        this.comboMultiplier = comboMultiplier;
+        this.linesPerLevel = linesPerLevel;
+        this.minGravityDelay = minGravityDelay;
+
+        // 每格下落间隔转换为每帧格数
+        gravityTable = new int[GameConfig.GRAVITY_LEVELS + 1];
+        double frameMillis = 1000.0 / GameConfig.FRAME_RATE;
+        for (int level = 1; level < gravityTable.length; level++) {
+            double delay = Math.max(minGravityDelay, baseSpeed - Math.pow(level, speedFactor) * speedMultiplier);
+            double cells = minGravityDelay >= 0 && delay > 0 ? frameMillis / delay : GameConfig.MAX_GRAVITY;
+            gravityTable[level] = (int) Math.round(Math.min(GameConfig.MAX_GRAVITY, cells) * ONE_CELL);
+        }
+        gravityTable[0] = gravityTable[1];
+    }
+
+    // 相同曲线，不同的最短下落间隔
+    public GameRules withMinGravityDelay(double minGravityDelay) {
+        return new GameRules(baseSpeed, speedFactor, speedMultiplier, baseScore, comboMultiplier,
+                linesPerLevel, minGravityDelay);
+    }
+
+    /**
+     * 关卡对应的重力（每帧下落的格数，单位 ONE_CELL），超出表的关卡沿用最后一项
+     */
+    public int gravity(int level) {
+        return gravityTable[Math.max(0, Math.min(level, gravityTable.length - 1))];
+    }
+
+    /**
+     * 根据消除行数和连击次数计算分数
+     */
+    public int calculateScore(int lines, int combo, int level) {
+        if (lines <= 0) return 0;
+
+        // 基础分数基于消除行数（单行=100，双行=200，三行=400，四行=800）
+        int score = baseScore * (1 << (lines - 1));
+
+        // 连击加成和关卡系数
+        double comboFactor = 1.0 + (combo * comboMultiplier);
+        double levelFactor = 1.0 + (level * 0.5);
+
+        return (int) (score * comboFactor * levelFactor);
+    }
+
+    // 消除的总行数对应的关卡
+    public int levelForLines(int lines) {
+        return lines / linesPerLevel + 1;
+    }
+
+    public int getBaseSpeed() {
+        return baseSpeed;
+    }
+
+    public int getBaseScore() {
+        return baseScore;
+    }
+
+    public double getSpeedFactor() {
+        return speedFactor;
+    }
+
+    public double getSpeedMultiplier() {
+        return speedMultiplier;
+    }
+
+    public double getComboMultiplier() {
+        return comboMultiplier;
+    }
+
+    public int getLinesPerLevel() {
+        return linesPerLevel;
+    }
+
+    public double getMinGravityDelay() {
+        return minGravityDelay;
+    }
+}
@@ -0,0 +1,269 @@
+package tetris.core;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import tetris.metrics.HighScoreIoEvent;
+
+/**
+ * 高分榜：内存中用大小为 K 的小顶堆保存前 K 名，插入为 O(log K)。
+ * 文件只在后台线程上读写：启动时加载一次，进入榜单的新分数追加到文件末尾，
+ * 追加的行数达到 K 时把前 K 名写入临时文件再原子地改名覆盖（压缩）。
+ * 文件格式仍是每行一个分数，与旧版本兼容。
+ */
+public class HighScoreStore {
+    private final Path file;
+    private final int capacity;
+    private final TopK scores;    // 内存中的榜单，由 this 保护
+    private final TopK persisted; // 已写入文件的榜单，只在后台线程上访问
+    private boolean loaded;
+    private int appendedLines; // 上次压缩以来追加的行数
+    private Runnable changeListener;
+    private final ExecutorService io = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "highscore-io");
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    /**
+     * 创建后立即在后台加载文件
+     * @param capacity 榜单保留的名次数
+     */
+    public HighScoreStore(Path file, int capacity) {
+        this.file = file;
+        this.capacity = capacity;
+        this.scores = new TopK(capacity);
+        this.persisted = new TopK(capacity);
+        io.execute(new Runnable() {
+            public void run() {
+                load();
+            }
+        });
+        // 退出前写完排队中的分数
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            public void run() {
+                close();
+            }
+        }, "highscore-flush"));
+    }
+
+    private void load() {
+        HighScoreIoEvent event = new HighScoreIoEvent();
+        event.begin();
+        int lines = 0;
+        boolean success = false;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) continue;
+                try {
+                    int score = Integer.parseInt(line);
+                    persisted.offer(score);
+                    synchronized (this) {
+                        scores.offer(score);
+                    }
+                    lines++;
+                } catch (NumberFormatException e) {
+                    // 跳过损坏的行，下次压缩时会被丢弃
+                }
+            }
+            synchronized (this) {
+                appendedLines = Math.max(0, lines - capacity);
+            }
+            success = true;
+        } catch (NoSuchFileException e) {
+            // 还没有分数记录
+            success = true;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        commit(event, "load", lines, success);
+        Runnable listener;
+        synchronized (this) {
+            loaded = true;
+            listener = changeListener;
+        }
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    /**
+     * 记录一个分数，立即更新内存中的榜单，文件写入在后台进行
+     * @return 分数是否进入榜单
+     */
+    public synchronized boolean add(final int score) {
+        if (!scores.offer(score)) {
+            return false;
+        }
+        if (io.isShutdown()) {
+            return true; // 正在退出，只保留在内存中
+        }
+        io.execute(new Runnable() {
+            public void run() {
+                append(score);
+            }
+        });
+        return true;
+    }
+
+    private void append(int score) {
+        persisted.offer(score);
+        HighScoreIoEvent event = new HighScoreIoEvent();
+        event.begin();
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(Integer.toString(score));
+            writer.newLine();
+        } catch (IOException e) {
+            e.printStackTrace();
+            commit(event, "append", 1, false);
+            return;
+        }
+        commit(event, "append", 1, true);
+        boolean compact;
+        synchronized (this) {
+            compact = ++appendedLines >= capacity;
+        }
+        if (compact) {
+            compact();
+        }
+    }
+
+    // 把前 K 名写入临时文件后原子改名，替换掉累积了追加行的旧文件
+    private void compact() {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        HighScoreIoEvent event = new HighScoreIoEvent();
+        event.begin();
+        int[] sorted = persisted.sorted();
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                for (int s : sorted) {
+                    writer.write(Integer.toString(s));
+                    writer.newLine();
+                }
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (java.nio.file.AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            synchronized (this) {
+                appendedLines = 0;
+            }
+            commit(event, "compact", sorted.length, true);
+        } catch (IOException e) {
+            e.printStackTrace();
+            commit(event, "compact", sorted.length, false);
+        }
+    }
+
+    private static void commit(HighScoreIoEvent event, String operation, int scores, boolean success) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.scores = scores;
+            event.success = success;
+            event.commit();
+        }
+    }
+
+    /**
+     * 当前榜单，从高到低排列
+     */
+    public synchronized int[] getScores() {
+        return scores.sorted();
+    }
+
+    // 文件是否已经加载完成
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * 加载完成后在后台线程上调用一次的回调，加载已经完成时不会再调用
+     */
+    public synchronized void setChangeListener(Runnable listener) {
+        this.changeListener = listener;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 停止接受写入，等待排队中的写入完成（最多两秒）
+     */
+    public void close() {
+        io.shutdown();
+        try {
+            io.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // 大小为 K 的小顶堆，heap[0] 是榜上的最低分
+    private static class TopK {
+        private final int[] heap;
+        private int size;
+
+        TopK(int capacity) {
+            heap = new int[capacity];
+        }
+
+        // 插入分数，榜单已满且分数不高于最低分时返回 false
+        boolean offer(int score) {
+            if (size < heap.length) {
+                int i = size++;
+                while (i > 0 && heap[(i - 1) / 2] > score) {
+                    heap[i] = heap[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+                heap[i] = score;
+                return true;
+            }
+            if (size == 0 || score <= heap[0]) {
+                return false;
+            }
+            // 替换堆顶后下沉
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) break;
+                if (child + 1 < size && heap[child + 1] < heap[child]) child++;
+                if (heap[child] >= score) break;
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = score;
+            return true;
+        }
+
+        // 从高到低排列的副本
+        int[] sorted() {
+            int[] result = Arrays.copyOf(heap, size);
+            Arrays.sort(result);
+            for (int i = 0, j = result.length - 1; i < j; i++, j--) {
+                int t = result[i];
+                result[i] = result[j];
+                result[j] = t;
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package tetris.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 带时间戳的输入命令队列：单生产者（事件分发线程）单消费者（游戏循环）的无锁环形缓冲区。
+ * 命令是一个非负整数，时间戳为 System.nanoTime，入队和出队都不分配对象。
+ */
+public class InputQueue {
+    private final long[] times;
+    private final int[] codes;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong(); // 下一个要读取的位置，只由消费者推进
+    private final AtomicLong tail = new AtomicLong(); // 下一个要写入的位置，只由生产者推进
+    private long polledTime; // 最近一次出队命令的时间戳，只由消费者访问
+
+    /**
+     * @param capacity 容量，向上取整为 2 的幂
+     */
+    public InputQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        times = new long[size];
+        codes = new int[size];
+        mask = size - 1;
+    }
+
+    /**
+     * 生产者入队一条命令，队列已满时丢弃并返回 false
+     */
+    public boolean offer(long nanos, int code) {
+        long t = tail.get();
+        if (t - head.get() > mask) {
+            return false;
+        }
+        int index = (int) t & mask;
+        times[index] = nanos;
+        codes[index] = code;
+        tail.lazySet(t + 1); // 发布写入的数据
+        return true;
+    }
+
+    /**
+     * 消费者出队一条命令，队列为空时返回 -1。命令的时间戳通过 getPolledTime 读取。
+     */
+    public int poll() {
+        long h = head.get();
+        if (h == tail.get()) {
+            return -1;
+        }
+        int index = (int) h & mask;
+        polledTime = times[index];
+        int code = codes[index];
+        head.lazySet(h + 1);
+        return code;
+    }
+
+    // 最近一次 poll 出队命令的时间戳
+    public long getPolledTime() {
+        return polledTime;
+    }
+
+    public boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+
+    // 消费者清空队列
+    public void clear() {
+        head.lazySet(tail.get());
+    }
+}
@@ -0,0 +1,12 @@
+package tetris.core;
+
+/**
+ * 方块序列生成器。同一个种子总是生成相同的序列，生成过程不分配对象。
+ */
+public interface PieceGenerator {
+    // 用新的种子重新开始序列
+    void reset(long seed);
+
+    // 下一个方块类型（1 到 ShapeTable.TYPE_COUNT）
+    int next();
+}
@@ -0,0 +1,70 @@
+package tetris.core;
+
+/**
+ * 预览队列：固定长度的环形缓冲区，始终装满接下来要出现的方块类型。
+ * 取出队首后立即从生成器补充队尾，不分配对象。
+ */
+public class PieceQueue {
+    private final PieceGenerator generator;
+    private final int[] types;
+    private int head;
+    private long drawn; // 从生成器取出的方块总数
+
+    /**
+     * @param length 预览的方块数，至少为 1
+     */
+    public PieceQueue(PieceGenerator generator, int length) {
+        if (length < 1) {
+            throw new IllegalArgumentException("预览长度至少为 1: " + length);
+        }
+        this.generator = generator;
+        this.types = new int[length];
+    }
+
+    // 用新的种子重置生成器并重新填满队列
+    public void reset(long seed) {
+        restore(seed, types.length);
+    }
+
+    /**
+     * 恢复到从该种子的生成器共取出 drawn 个方块后的状态，只需快进生成器而不必重放整局
+     */
+    public void restore(long seed, long drawn) {
+        generator.reset(seed);
+        for (long i = types.length; i < drawn; i++) {
+            generator.next();
+        }
+        for (int i = 0; i < types.length; i++) {
+            types[i] = generator.next();
+        }
+        head = 0;
+        this.drawn = Math.max(drawn, types.length);
+    }
+
+    // 取出下一个方块类型
+    public int take() {
+        int type = types[head];
+        types[head] = generator.next();
+        head = head + 1 == types.length ? 0 : head + 1;
+        drawn++;
+        return type;
+    }
+
+    // 第 i 个预览的方块类型，0 为下一个
+    public int peek(int i) {
+        int index = head + i;
+        return types[index < types.length ? index : index - types.length];
+    }
+
+    public long getDrawnCount() {
+        return drawn;
+    }
+
+    public PieceGenerator getGenerator() {
+        return generator;
+    }
+
+    public int length() {
+        return types.length;
+    }
+}
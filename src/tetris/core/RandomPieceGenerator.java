@@ -0,0 +1,24 @@
+package tetris.core;
+
+import java.util.SplittableRandom;
+
+/**
+ * 均匀随机生成器：每个方块独立地从七种类型中等概率选取（原始玩法）
+ */
+public class RandomPieceGenerator implements PieceGenerator {
+    private SplittableRandom random;
+
+    public RandomPieceGenerator(long seed) {
+        reset(seed);
+    }
+
+    @Override
+    public void reset(long seed) {
+        random = new SplittableRandom(seed);
+    }
+
+    @Override
+    public int next() {
+        return random.nextInt(ShapeTable.TYPE_COUNT) + 1;
+    }
+}
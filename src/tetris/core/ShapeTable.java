@@ -0,0 +1,155 @@
+package tetris.core;
+
+/**
+ * 预先计算好的方块形状表：7种类型 × 4个旋转状态。
+ * 表在类加载时构建一次，之后只读，方块实例只需保存 (类型, 旋转, x, y)，
+ * 移动、旋转和碰撞检测都不再分配对象。
+ *
+ * 形状编号 shape = (type - 1) * 4 + rotation，type 取 1~7。
+ */
+public final class ShapeTable {
+    public static final int TYPE_COUNT = 7;
+    public static final int ROTATIONS = 4;
+    public static final int CELL_COUNT = 4;
+    public static final int SHAPE_COUNT = TYPE_COUNT * ROTATIONS;
+    // 形状可能占用的列数（dx 取 0~3）
+    public static final int COLUMNS = 4;
+    // columnBottom 对不占用的列返回的值
+    public static final int NO_CELL = Byte.MIN_VALUE;
+
+    // 每种类型各旋转状态的格子偏移 {dx0, dy0, dx1, dy1, ...}，与原 getBlocksForType 一致
+    private static final int[][][] DEFINITIONS = {
+        { // 1: I
+            {0, 0, 1, 0, 2, 0, 3, 0},
+            {1, -1, 1, 0, 1, 1, 1, 2},
+            {0, 0, 1, 0, 2, 0, 3, 0},
+            {1, -1, 1, 0, 1, 1, 1, 2},
+        },
+        { // 2: O
+            {0, 0, 1, 0, 0, 1, 1, 1},
+            {0, 0, 1, 0, 0, 1, 1, 1},
+            {0, 0, 1, 0, 0, 1, 1, 1},
+            {0, 0, 1, 0, 0, 1, 1, 1},
+        },
+        { // 3: T
+            {0, 0, 1, 0, 2, 0, 1, 1},
+            {1, -1, 1, 0, 1, 1, 0, 0},
+            {0, 0, 1, 0, 2, 0, 1, -1},
+            {1, -1, 1, 0, 1, 1, 2, 0},
+        },
+        { // 4: S
+            {1, 0, 2, 0, 0, 1, 1, 1},
+            {0, 0, 0, 1, 1, -1, 1, 0},
+            {1, 0, 2, 0, 0, 1, 1, 1},
+            {0, 0, 0, 1, 1, -1, 1, 0},
+        },
+        { // 5: Z
+            {0, 0, 1, 0, 1, 1, 2, 1},
+            {1, -1, 1, 0, 0, 0, 0, 1},
+            {0, 0, 1, 0, 1, 1, 2, 1},
+            {1, -1, 1, 0, 0, 0, 0, 1},
+        },
+        { // 6: J
+            {0, 0, 1, 0, 2, 0, 0, 1},
+            {1, -1, 1, 0, 1, 1, 0, 1},
+            {0, 0, 1, 0, 2, 0, 2, -1},
+            {1, -1, 1, 0, 1, 1, 2, -1},
+        },
+        { // 7: L
+            {0, 0, 1, 0, 2, 0, 2, 1},
+            {1, -1, 1, 0, 1, 1, 0, -1},
+            {0, 0, 1, 0, 2, 0, 0, -1},
+            {1, -1, 1, 0, 1, 1, 2, 1},
+        },
+    };
+
+    // 格子偏移打包为 (dx & 0xF) | ((dy & 0xF) << 4)，dy 为有符号4位
+    private static final byte[] CELLS = new byte[SHAPE_COUNT * CELL_COUNT];
+    // 每行的列掩码，第 0 位对应 dx = 0，首行对应 dy = TOP
+    private static final int[][] ROW_MASKS = new int[SHAPE_COUNT][];
+    // 包围盒
+    private static final byte[] LEFT = new byte[SHAPE_COUNT];
+    private static final byte[] TOP = new byte[SHAPE_COUNT];
+    private static final byte[] WIDTH = new byte[SHAPE_COUNT];
+    private static final byte[] HEIGHT = new byte[SHAPE_COUNT];
+    // 每列最下方格子的 dy，用于按列高度计算落底距离
+    private static final byte[] BOTTOM = new byte[SHAPE_COUNT * COLUMNS];
+
+    static {
+        for (int type = 1; type <= TYPE_COUNT; type++) {
+            for (int rotation = 0; rotation < ROTATIONS; rotation++) {
+                int shape = index(type, rotation);
+                int[] def = DEFINITIONS[type - 1][rotation];
+                int minX = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE;
+                int minY = Integer.MAX_VALUE, maxY = Integer.MIN_VALUE;
+                for (int i = 0; i < CELL_COUNT; i++) {
+                    int dx = def[i * 2], dy = def[i * 2 + 1];
+                    CELLS[shape * CELL_COUNT + i] = (byte) ((dx & 0xF) | ((dy & 0xF) << 4));
+                    minX = Math.min(minX, dx);
+                    maxX = Math.max(maxX, dx);
+                    minY = Math.min(minY, dy);
+                    maxY = Math.max(maxY, dy);
+                }
+                int[] masks = new int[maxY - minY + 1];
+                java.util.Arrays.fill(BOTTOM, shape * COLUMNS, (shape + 1) * COLUMNS, (byte) NO_CELL);
+                for (int i = 0; i < CELL_COUNT; i++) {
+                    int dx = def[i * 2], dy = def[i * 2 + 1];
+                    masks[dy - minY] |= 1 << dx;
+                    BOTTOM[shape * COLUMNS + dx] = (byte) Math.max(BOTTOM[shape * COLUMNS + dx], dy);
+                }
+                ROW_MASKS[shape] = masks;
+                LEFT[shape] = (byte) minX;
+                TOP[shape] = (byte) minY;
+                WIDTH[shape] = (byte) (maxX - minX + 1);
+                HEIGHT[shape] = (byte) (maxY - minY + 1);
+            }
+        }
+    }
+
+    private ShapeTable() {
+    }
+
+    public static int index(int type, int rotation) {
+        return (type - 1) * ROTATIONS + rotation;
+    }
+
+    // 第 i 个格子相对于方块原点的列偏移
+    public static int cellX(int shape, int i) {
+        return CELLS[shape * CELL_COUNT + i] & 0xF;
+    }
+
+    // 第 i 个格子相对于方块原点的行偏移
+    public static int cellY(int shape, int i) {
+        return CELLS[shape * CELL_COUNT + i] << 24 >> 28;
+    }
+
+    /**
+     * 形状每行的列掩码，供 Board 碰撞检测使用。返回共享数组，调用方不得修改。
+     */
+    public static int[] rowMasks(int shape) {
+        return ROW_MASKS[shape];
+    }
+
+    /**
+     * 第 dx 列最下方格子的行偏移，该列没有格子时返回 NO_CELL
+     */
+    public static int columnBottom(int shape, int dx) {
+        return BOTTOM[shape * COLUMNS + dx];
+    }
+
+    public static int left(int shape) {
+        return LEFT[shape];
+    }
+
+    public static int top(int shape) {
+        return TOP[shape];
+    }
+
+    public static int width(int shape) {
+        return WIDTH[shape];
+    }
+
+    public static int height(int shape) {
+        return HEIGHT[shape];
+    }
+}
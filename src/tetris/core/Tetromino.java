@@ -0,0 +1,119 @@
+package tetris.core;
+
+/**
+ * 方块：只保存 (类型, 旋转, x, y)，形状数据从共享的 ShapeTable 读取
+ */
+public class Tetromino {
+    private int type;
+    private int rotationState = 0;
+    private int x, y;
+
+    public Tetromino(int type, int x, int y) {
+        this.type = type;
+        this.x = x;
+        this.y = y;
+    }
+
+    // 复用同一个对象表示新的方块，回到初始旋转状态
+    public void reset(int type, int x, int y) {
+        this.type = type;
+        this.rotationState = 0;
+        this.x = x;
+        this.y = y;
+    }
+
+    // 当前形状在 ShapeTable 中的编号
+    public int getShape() {
+        return ShapeTable.index(type, rotationState);
+    }
+
+    public void move(int dx, int dy) {
+        x += dx;
+        y += dy;
+    }
+
+    public void rotate() {
+        rotationState = (rotationState + 1) % 4;
+    }
+
+    public void rotateBack() {
+        rotationState = (rotationState + 3) % 4;
+    }
+
+    public boolean collidesWithBoard(Board board) {
+        int shape = getShape();
+        return board.collides(ShapeTable.rowMasks(shape), x, y + ShapeTable.top(shape));
+    }
+
+    public void lockToBoard(Board board) {
+        int shape = getShape();
+        board.lock(ShapeTable.rowMasks(shape), x, y + ShapeTable.top(shape), type);
+    }
+
+    /**
+     * 从当前位置直接落底能下落的格数。
+     * 方块整体位于各列天际线之上时只需查列高度，否则（如塞在悬空方块下方）退回逐格检测。
+     */
+    public int dropDistance(Board board) {
+        int shape = getShape();
+        int boardHeight = board.getHeight();
+        int distance = Integer.MAX_VALUE;
+        for (int dx = 0; dx < ShapeTable.COLUMNS; dx++) {
+            int bottom = ShapeTable.columnBottom(shape, dx);
+            if (bottom == ShapeTable.NO_CELL) {
+                continue;
+            }
+            int column = x + dx;
+            int surface = column >= 0 && column < board.getWidth()
+                    ? boardHeight - board.getColumnHeight(column) : boardHeight;
+            int gap = surface - 1 - (y + bottom);
+            if (gap < 0) {
+                return stepDropDistance(board);
+            }
+            distance = Math.min(distance, gap);
+        }
+        return distance;
+    }
+
+    // 逐格下移直到碰撞
+    private int stepDropDistance(Board board) {
+        int[] masks = ShapeTable.rowMasks(getShape());
+        int top = y + ShapeTable.top(getShape());
+        int distance = 0;
+        while (!board.collides(masks, x, top + distance + 1)) {
+            distance++;
+        }
+        return distance;
+    }
+
+    // 方块包含的格子数
+    public int getCellCount() {
+        return ShapeTable.CELL_COUNT;
+    }
+
+    // 第 i 个格子相对于方块原点的列偏移
+    public int getCellX(int i) {
+        return ShapeTable.cellX(getShape(), i);
+    }
+
+    // 第 i 个格子相对于方块原点的行偏移
+    public int getCellY(int i) {
+        return ShapeTable.cellY(getShape(), i);
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    public int getRotation() {
+        return rotationState;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+}
@@ -0,0 +1,50 @@
+package tetris.core;
+
+/**
+ * 简单的耗时统计：次数、总耗时、最近一次和最大值（纳秒）。
+ * 只允许一个线程写入，其他线程读取到的是近似值。
+ */
+public class TimingStats {
+    private volatile long count;
+    private volatile long totalNanos;
+    private volatile long lastNanos;
+    private volatile long maxNanos;
+
+    public void record(long nanos) {
+        count++;
+        totalNanos += nanos;
+        lastNanos = nanos;
+        if (nanos > maxNanos) {
+            maxNanos = nanos;
+        }
+    }
+
+    public void reset() {
+        count = 0;
+        totalNanos = 0;
+        lastNanos = 0;
+        maxNanos = 0;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getLastNanos() {
+        return lastNanos;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    public double getMeanNanos() {
+        long n = count;
+        return n == 0 ? 0 : (double) totalNanos / n;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("次数=%d 平均=%.3fms 最大=%.3fms", count, getMeanNanos() / 1e6, maxNanos / 1e6);
+    }
+}
@@ -0,0 +1,235 @@
+package tetris.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * 游戏运行时的性能指标：帧耗时、模拟帧耗时、输入延迟和每帧分配字节数的直方图，
+ * 以及方块数和消除行数的累计值。通过 JMX 暴露，也可以画在游戏画面上。
+ *
+ * 帧相关的指标只由绘制线程写入，模拟相关的只由持有引擎锁的线程写入。
+ */
+public class GameMetrics implements GameMetricsMBean {
+    public static final String OBJECT_NAME = "tetris:type=GameMetrics";
+
+    private final Histogram frameTime = new Histogram();
+    private final Histogram tickTime = new Histogram();
+    private final Histogram inputLatency = new Histogram();
+    private final Histogram allocatedBytes = new Histogram();
+    private final Histogram animationTime = new Histogram();
+    private volatile long piecesPlaced;
+    private volatile long linesCleared;
+
+    // 线程分配计数只有 HotSpot 提供，不支持时不记录分配
+    private final com.sun.management.ThreadMXBean allocationBean;
+    private long allocationThread = -1;
+    private long lastAllocated;
+
+    public GameMetrics() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean allocation = null;
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            allocation = (com.sun.management.ThreadMXBean) bean;
+            if (!allocation.isThreadAllocatedMemorySupported() || !allocation.isThreadAllocatedMemoryEnabled()) {
+                allocation = null;
+            }
+        }
+        allocationBean = allocation;
+    }
+
+    /**
+     * 注册到平台 MBeanServer，名称为 OBJECT_NAME；已经注册过时替换掉旧的
+     */
+    public void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 记录一帧的绘制耗时，同时记录绘制线程从上一帧结束到现在分配的字节数
+     */
+    public void recordFrame(long nanos) {
+        frameTime.record(nanos);
+        if (allocationBean != null) {
+            long thread = Thread.currentThread().getId();
+            long allocated = allocationBean.getThreadAllocatedBytes(thread);
+            // 切换渲染模式后绘制线程变了，第一帧没有可比的基准
+            if (thread == allocationThread) {
+                allocatedBytes.record(allocated - lastAllocated);
+            }
+            allocationThread = thread;
+            lastAllocated = allocated;
+        }
+    }
+
+    // 一个模拟帧（重力、锁定和消行）的耗时
+    public void recordTick(long nanos) {
+        tickTime.record(nanos);
+    }
+
+    // 从按键到包含其结果的画面呈现的延迟
+    public void recordInputLatency(long nanos) {
+        inputLatency.record(nanos);
+    }
+
+    // 有动画的帧里绘制动画的耗时
+    public void recordAnimation(long nanos) {
+        animationTime.record(nanos);
+    }
+
+    public void addPieces(int pieces, int lines) {
+        piecesPlaced += pieces;
+        linesCleared += lines;
+    }
+
+    public Histogram getFrameTime() {
+        return frameTime;
+    }
+
+    public Histogram getTickTime() {
+        return tickTime;
+    }
+
+    public Histogram getInputLatency() {
+        return inputLatency;
+    }
+
+    public Histogram getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public Histogram getAnimationTime() {
+        return animationTime;
+    }
+
+    // 供浮层和统计对话框显示的几行文字
+    public String[] summary() {
+        return new String[] {
+            "帧: " + formatMillis(frameTime),
+            "模拟: " + formatMillis(tickTime),
+            "输入: " + formatMillis(inputLatency),
+            "动画: " + formatMillis(animationTime),
+            String.format(Locale.ROOT, "分配/帧: p50=%dB p99=%dB", allocatedBytes.getValueAtPercentile(0.5),
+                    allocatedBytes.getValueAtPercentile(0.99)),
+            "方块: " + piecesPlaced + " 行: " + linesCleared + " 绘制: " + frameTime.getCount()
+        };
+    }
+
+    private static String formatMillis(Histogram h) {
+        return String.format(Locale.ROOT, "p50=%.2f p99=%.2f 最大=%.2fms", h.getValueAtPercentile(0.5) / 1e6,
+                h.getValueAtPercentile(0.99) / 1e6, h.getMax() / 1e6);
+    }
+
+    @Override
+    public double getFrameTimeP50Millis() {
+        return frameTime.getValueAtPercentile(0.5) / 1e6;
+    }
+
+    @Override
+    public double getFrameTimeP99Millis() {
+        return frameTime.getValueAtPercentile(0.99) / 1e6;
+    }
+
+    @Override
+    public double getFrameTimeMaxMillis() {
+        return frameTime.getMax() / 1e6;
+    }
+
+    @Override
+    public double getTickTimeP50Millis() {
+        return tickTime.getValueAtPercentile(0.5) / 1e6;
+    }
+
+    @Override
+    public double getTickTimeP99Millis() {
+        return tickTime.getValueAtPercentile(0.99) / 1e6;
+    }
+
+    @Override
+    public double getTickTimeMaxMillis() {
+        return tickTime.getMax() / 1e6;
+    }
+
+    @Override
+    public double getInputLatencyP50Millis() {
+        return inputLatency.getValueAtPercentile(0.5) / 1e6;
+    }
+
+    @Override
+    public double getInputLatencyP99Millis() {
+        return inputLatency.getValueAtPercentile(0.99) / 1e6;
+    }
+
+    @Override
+    public double getInputLatencyMaxMillis() {
+        return inputLatency.getMax() / 1e6;
+    }
+
+    @Override
+    public double getAnimationTimeP99Millis() {
+        return animationTime.getValueAtPercentile(0.99) / 1e6;
+    }
+
+    @Override
+    public double getAnimationTimeMaxMillis() {
+        return animationTime.getMax() / 1e6;
+    }
+
+    @Override
+    public long getAnimationFrames() {
+        return animationTime.getCount();
+    }
+
+    @Override
+    public long getAllocatedBytesPerFrameP50() {
+        return allocatedBytes.getValueAtPercentile(0.5);
+    }
+
+    @Override
+    public long getAllocatedBytesPerFrameP99() {
+        return allocatedBytes.getValueAtPercentile(0.99);
+    }
+
+    @Override
+    public long getFrames() {
+        return frameTime.getCount();
+    }
+
+    @Override
+    public long getTicks() {
+        return tickTime.getCount();
+    }
+
+    @Override
+    public long getPiecesPlaced() {
+        return piecesPlaced;
+    }
+
+    @Override
+    public long getLinesCleared() {
+        return linesCleared;
+    }
+
+    @Override
+    public void reset() {
+        frameTime.reset();
+        tickTime.reset();
+        inputLatency.reset();
+        allocatedBytes.reset();
+        animationTime.reset();
+        piecesPlaced = 0;
+        linesCleared = 0;
+    }
+}
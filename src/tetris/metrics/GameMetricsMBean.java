@@ -0,0 +1,45 @@
+package tetris.metrics;
+
+/**
+ * GameMetrics 的 JMX 接口，时间单位为毫秒，分位数为近似值
+ */
+public interface GameMetricsMBean {
+    double getFrameTimeP50Millis();
+
+    double getFrameTimeP99Millis();
+
+    double getFrameTimeMaxMillis();
+
+    double getTickTimeP50Millis();
+
+    double getTickTimeP99Millis();
+
+    double getTickTimeMaxMillis();
+
+    double getInputLatencyP50Millis();
+
+    double getInputLatencyP99Millis();
+
+    double getInputLatencyMaxMillis();
+
+    double getAnimationTimeP99Millis();
+
+    double getAnimationTimeMaxMillis();
+
+    long getAnimationFrames();
+
+    long getAllocatedBytesPerFrameP50();
+
+    long getAllocatedBytesPerFrameP99();
+
+    long getFrames();
+
+    long getTicks();
+
+    long getPiecesPlaced();
+
+    long getLinesCleared();
+
+    // 清空所有直方图和计数
+    void reset();
+}
@@ -0,0 +1,31 @@
+package tetris.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * 一局结束：停止计时器和回放录制，记录最终结果
+ */
+@Name("tetris.GameOver")
+@Label("Game Over")
+@Category({"Tetris", "Simulation"})
+@Description("结束一局游戏")
+public class GameOverEvent extends Event {
+    @Label("Score")
+    public int score;
+
+    @Label("Level")
+    public int level;
+
+    @Label("Lines Cleared")
+    public int lines;
+
+    @Label("Pieces Placed")
+    public int pieces;
+
+    @Label("Auto Play")
+    public boolean autoPlay;
+}
@@ -0,0 +1,23 @@
+package tetris.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * 一个模拟帧：重力下落、锁定计时以及随之发生的锁定和消行
+ */
+@Name("tetris.GravityTick")
+@Label("Gravity Tick")
+@Category({"Tetris", "Simulation"})
+@Description("推进一帧重力和锁定延迟")
+public class GravityTickEvent extends Event {
+    @Label("Level")
+    public int level;
+
+    @Label("Locked")
+    @Description("这一帧是否锁定了方块")
+    public boolean locked;
+}
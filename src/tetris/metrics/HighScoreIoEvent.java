@@ -0,0 +1,27 @@
+package tetris.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * 高分榜后台线程上的一次文件读写
+ */
+@Name("tetris.HighScoreIo")
+@Label("High Score I/O")
+@Category({"Tetris", "I/O"})
+@Description("加载、追加或压缩高分文件")
+public class HighScoreIoEvent extends Event {
+    @Label("Operation")
+    @Description("load、append 或 compact")
+    public String operation;
+
+    @Label("Scores")
+    @Description("读取或写入的分数个数")
+    public int scores;
+
+    @Label("Success")
+    public boolean success;
+}
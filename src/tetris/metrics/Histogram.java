@@ -0,0 +1,86 @@
+package tetris.metrics;
+
+import java.util.Arrays;
+
+/**
+ * 对数分桶的直方图：每个 2 的幂区间再等分为 8 个桶，相对误差不超过 12.5%。
+ * 记录一个值只是一次位运算和一次数组自增，不分配内存，可以一直开着。
+ * 与 TimingStats 一样只允许一个线程写入，其他线程读取到的是近似值。
+ */
+public class Histogram {
+    private static final int SUB_BITS = 3;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_COUNT;
+
+    private final long[] counts = new long[BUCKETS];
+    private volatile long count;
+    private volatile long total;
+    private volatile long max;
+
+    // 负值按 0 记录
+    public void record(long value) {
+        if (value < 0) value = 0;
+        counts[bucketOf(value)]++;
+        total += value;
+        if (value > max) {
+            max = value;
+        }
+        count++; // 最后写入 volatile 的次数，读取方先读次数再读桶
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        int exp = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exp - SUB_BITS)) & (SUB_COUNT - 1);
+        return (exp - SUB_BITS + 1) * SUB_COUNT + sub;
+    }
+
+    // 桶内的最大值
+    static long upperBound(int bucket) {
+        if (bucket < SUB_COUNT) {
+            return bucket;
+        }
+        int exp = bucket / SUB_COUNT + SUB_BITS - 1;
+        long lower = (long) (SUB_COUNT + bucket % SUB_COUNT) << (exp - SUB_BITS);
+        return lower + (1L << (exp - SUB_BITS)) - 1;
+    }
+
+    /**
+     * 分位数（0 到 1），返回所在桶的上界，不超过记录到的最大值
+     */
+    public long getValueAtPercentile(double p) {
+        long n = count;
+        if (n == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(p * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        long n = count;
+        return n == 0 ? 0 : (double) total / n;
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        total = 0;
+        max = 0;
+    }
+}
@@ -0,0 +1,25 @@
+package tetris.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * 消除满行，只在至少消除一行时提交
+ */
+@Name("tetris.LineClear")
+@Label("Line Clear")
+@Category({"Tetris", "Simulation"})
+@Description("检测并压缩满行")
+public class LineClearEvent extends Event {
+    @Label("Rows Cleared")
+    public int rows;
+
+    @Label("Combo")
+    public int combo;
+
+    @Label("Score Gained")
+    public int scoreGained;
+}
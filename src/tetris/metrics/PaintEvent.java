@@ -0,0 +1,32 @@
+package tetris.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * 绘制一帧，记录本次重绘的脏区域
+ */
+@Name("tetris.Paint")
+@Label("Paint")
+@Category({"Tetris", "Rendering"})
+@Description("绘制游戏面板")
+public class PaintEvent extends Event {
+    @Label("Dirty X")
+    public int x;
+
+    @Label("Dirty Y")
+    public int y;
+
+    @Label("Dirty Width")
+    public int width;
+
+    @Label("Dirty Height")
+    public int height;
+
+    @Label("Active Rendering")
+    @Description("由循环线程通过 BufferStrategy 呈现")
+    public boolean active;
+}
@@ -0,0 +1,26 @@
+package tetris.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * 方块锁定到棋盘上，包括消行和生成下一个方块
+ */
+@Name("tetris.PieceLock")
+@Label("Piece Lock")
+@Category({"Tetris", "Simulation"})
+@Description("锁定方块、消行并生成下一个方块")
+public class PieceLockEvent extends Event {
+    @Label("Piece Type")
+    public int pieceType;
+
+    @Label("Pieces Placed")
+    public int piecesPlaced;
+
+    @Label("Game Over")
+    @Description("下一个方块无法生成")
+    public boolean gameOver;
+}
@@ -0,0 +1,136 @@
+package tetris.net;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+import tetris.ai.AutoPlayer;
+import tetris.ai.PlacementHeuristic;
+import tetris.core.GameConfig;
+import tetris.core.GameEngine;
+import tetris.metrics.Histogram;
+
+/**
+ * 无界面的对战测试：两个进程各由自动玩家操作，通过本机或局域网对战，结束时打印状态哈希
+ * （双方必须相同）、往返时间、等待对手的次数和每帧的流量：
+ * <pre>
+ * java -cp tetris.jar tetris.net.VersusCli host [端口] [帧数] [--fast] [--pace N] [--seed N]
+ * java -cp tetris.jar tetris.net.VersusCli join 主机 [端口] [帧数] [--fast] [--pace N]
+ * </pre>
+ * --fast 不按帧率等待，只受对手输入限制；--pace 让自动玩家每步之间多等 N 帧。
+ */
+public class VersusCli {
+    private VersusCli() {
+    }
+
+    /**
+     * 自动玩家的输入：按下一个操作一帧后松开，等这一步模拟完成后再决定下一步；对战测试也用它
+     */
+    static class BotInput implements VersusSession.InputSource {
+        private final AutoPlayer player = new AutoPlayer(new PlacementHeuristic(), false, ForkJoinPool.commonPool());
+        private final int pace;
+        private int pressFrame = Integer.MIN_VALUE / 2;
+
+        BotInput(int pace) {
+            this.pace = pace;
+        }
+
+        @Override
+        public int sample(VersusMatch match, int local, int frame) {
+            if (frame == pressFrame + 1 || match.getFrame() <= pressFrame + pace) {
+                return 0;
+            }
+            GameEngine engine = match.getEngine(local);
+            if (engine.isGameOver()) {
+                return 0;
+            }
+            pressFrame = frame;
+            return 1 << player.nextAction(engine).ordinal();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0 || !("host".equals(args[0]) || "join".equals(args[0]))) {
+            System.err.println("用法: VersusCli host [端口] [帧数] [--fast] [--pace N] [--seed N]");
+            System.err.println("      VersusCli join 主机 [端口] [帧数] [--fast] [--pace N]");
+            System.exit(2);
+        }
+        boolean hosting = "host".equals(args[0]);
+        String host = null;
+        int port = GameConfig.VERSUS_PORT;
+        int frames = 3600;
+        boolean fast = false;
+        int pace = 0;
+        long seed = System.nanoTime();
+        int positional = 0;
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            if ("--fast".equals(arg)) {
+                fast = true;
+            } else if ("--pace".equals(arg)) {
+                pace = Integer.parseInt(args[++i]);
+            } else if ("--seed".equals(arg)) {
+                seed = Long.parseLong(args[++i]);
+            } else if (!hosting && positional == 0) {
+                host = arg;
+                positional++;
+            } else if (positional++ <= (hosting ? 0 : 1)) {
+                port = Integer.parseInt(arg);
+            } else {
+                frames = Integer.parseInt(arg);
+            }
+        }
+
+        VersusSession.InputSource input = new BotInput(pace);
+        VersusSession session = hosting
+                ? VersusSession.host(port, seed, GameConfig.BOARD_WIDTH, GameConfig.BOARD_HEIGHT,
+                        GameConfig.INPUT_DELAY_FRAMES, input, !fast)
+                : VersusSession.join(host, port, input, !fast);
+        session.setFrameLimit(frames);
+        System.out.println(hosting ? "等待对手加入，端口 " + port : "连接到 " + host + ":" + port);
+
+        long start = 0;
+        while (!session.isFinished()) {
+            if (session.isClosed() && (session.getMatch() == null || !session.getMatch().isReady())) {
+                System.out.println("连接已断开: " + session.getCloseReason());
+                System.exit(1);
+            }
+            if (start == 0 && session.isStarted()) {
+                start = System.nanoTime();
+            }
+            session.update(System.nanoTime());
+            session.await(VersusSession.FRAME_NANOS);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        // 稍等对手也到达终点，再关闭连接
+        long lingerEnd = System.nanoTime() + 500000000L;
+        while (!session.isClosed() && System.nanoTime() < lingerEnd) {
+            session.await(lingerEnd - System.nanoTime());
+        }
+        VersusMatch m = session.getMatch();
+        VersusConnection c = session.getConnection();
+        Histogram rtt = c.getRoundTrip();
+        Histogram stalls = session.getStalls();
+        int local = session.getLocalPlayer();
+        session.close();
+
+        System.out.printf("玩家 %d 帧数=%d 用时=%.2fs 状态哈希=%016x%s%n", local, m.getFrame(), seconds,
+                m.stateHash(), session.isDesynced() ? " 不同步!" : "");
+        for (int p = 0; p < VersusMatch.PLAYERS; p++) {
+            GameEngine e = m.getEngine(p);
+            System.out.printf("  玩家 %d: 方块=%d 行数=%d 得分=%d 送出垃圾行=%d%s%n", p, e.getPiecesPlaced(),
+                    e.getLinesCleared(), e.getScore(), m.getSentGarbage(p), e.isGameOver() ? " 结束" : "");
+        }
+        if (m.isOver()) {
+            int winner = m.getWinner();
+            System.out.println(winner < 0 ? "平局" : winner == local ? "胜利" : "失败");
+        }
+        System.out.printf("往返时间 p50=%.3fms p99=%.3fms 最大=%.3fms（%d 次）%n",
+                rtt.getValueAtPercentile(0.5) / 1e6, rtt.getValueAtPercentile(0.99) / 1e6, rtt.getMax() / 1e6,
+                rtt.getCount());
+        System.out.printf("等待对手 %d 次 p99=%.3fms，发送 %.1f 字节/帧，接收 %.1f 字节/帧%n", stalls.getCount(),
+                stalls.getValueAtPercentile(0.99) / 1e6, (double) c.getBytesSent() / Math.max(1, m.getFrame()),
+                (double) c.getBytesReceived() / Math.max(1, m.getFrame()));
+        System.exit(session.isDesynced() ? 1 : 0);
+    }
+}
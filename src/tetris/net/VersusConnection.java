@@ -0,0 +1,416 @@
+package tetris.net;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+
+import tetris.metrics.Histogram;
+
+/**
+ * 对战的网络连接：一个后台线程用非阻塞 NIO 的 Selector 负责接受或发起连接、读取和解析消息，
+ * 收到的消息直接在这个线程上交给 Handler，PING 也在这里立刻回复，不经过游戏线程。
+ * 发送在调用线程上立即进行非阻塞写，写不完的部分留在发送缓冲区，由后台线程在可写时补发。
+ * 关闭 Nagle 算法，每条消息都立刻发出。
+ */
+public class VersusConnection implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 消息回调，都在网络线程上调用
+     */
+    public interface Handler {
+        // 双方握手完成，开始对战；local 为本机的玩家编号
+        void onStart(long seed, int width, int height, int inputDelay, int local);
+
+        void onInput(int frame, int bits);
+
+        void onCheck(int frame, long hash);
+
+        // 连接断开或出错，reason 为原因
+        void onClosed(String reason);
+    }
+
+    private final Handler handler;
+    private final Selector selector;
+    private final Thread thread;
+    private final ByteBuffer inbox = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    // 待发送的数据，处于写入模式，position 为待发送的字节数；访问时锁住它自己
+    private final ByteBuffer outbox = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final Histogram roundTrip = new Histogram();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    // 创建方在握手时使用的对战参数
+    private final long seed;
+    private final int width;
+    private final int height;
+    private final int inputDelay;
+    private final boolean hosting;
+    private ServerSocketChannel server;
+    private volatile SocketChannel channel;
+    private SelectionKey key;
+    private volatile boolean writeRequested;
+    private volatile boolean closed;
+    private volatile String closeReason;
+
+    private VersusConnection(Handler handler, boolean hosting, long seed, int width, int height, int inputDelay)
+            throws IOException {
+        this.handler = handler;
+        this.hosting = hosting;
+        this.seed = seed;
+        this.width = width;
+        this.height = height;
+        this.inputDelay = inputDelay;
+        selector = Selector.open();
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                loop();
+            }
+        }, "tetris-versus-net");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * 在端口上等待对手加入，对手加入后用给定的参数开始对战，本机为玩家 0
+     */
+    public static VersusConnection host(int port, long seed, int width, int height, int inputDelay,
+            Handler handler) throws IOException {
+        VersusConnection c = new VersusConnection(handler, true, seed, width, height, inputDelay);
+        try {
+            c.server = ServerSocketChannel.open();
+            c.server.bind(new InetSocketAddress(port));
+            c.server.configureBlocking(false);
+            c.server.register(c.selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            c.closeChannels();
+            throw e;
+        }
+        c.thread.start();
+        return c;
+    }
+
+    /**
+     * 连接到创建方，参数由创建方决定，本机为玩家 1
+     */
+    public static VersusConnection join(String host, int port, Handler handler) throws IOException {
+        VersusConnection c = new VersusConnection(handler, false, 0, 0, 0, 0);
+        try {
+            SocketChannel ch = SocketChannel.open();
+            ch.configureBlocking(false);
+            ch.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            c.channel = ch;
+            if (ch.connect(new InetSocketAddress(host, port))) {
+                c.key = ch.register(c.selector, SelectionKey.OP_READ);
+                c.sendHello();
+            } else {
+                c.key = ch.register(c.selector, SelectionKey.OP_CONNECT);
+            }
+        } catch (IOException e) {
+            c.closeChannels();
+            throw e;
+        }
+        c.thread.start();
+        return c;
+    }
+
+    private void loop() {
+        try {
+            while (!closed) {
+                selector.select();
+                if (writeRequested && key != null && key.isValid() && channel.isConnected()) {
+                    writeRequested = false;
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                }
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey k = it.next();
+                    it.remove();
+                    if (!k.isValid()) {
+                        continue;
+                    }
+                    if (k.isAcceptable()) {
+                        accept();
+                    } else if (k.isConnectable()) {
+                        SocketChannel ch = (SocketChannel) k.channel();
+                        ch.finishConnect();
+                        k.interestOps(SelectionKey.OP_READ);
+                        sendHello();
+                    } else {
+                        if (k.isReadable()) {
+                            read();
+                        }
+                        if (k.isValid() && k.isWritable()) {
+                            synchronized (outbox) {
+                                if (flushLocked()) {
+                                    k.interestOps(SelectionKey.OP_READ);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            fail(e.getMessage() != null ? e.getMessage() : e.toString());
+        } catch (RuntimeException e) {
+            fail("协议错误: " + e);
+        } finally {
+            closeChannels();
+        }
+    }
+
+    // 只接受一个对手，之后关闭监听端口
+    private void accept() throws IOException {
+        SocketChannel ch = server.accept();
+        if (ch == null) {
+            return;
+        }
+        ch.configureBlocking(false);
+        ch.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        server.close();
+        server = null;
+        channel = ch;
+        key = ch.register(selector, SelectionKey.OP_READ);
+    }
+
+    private void read() throws IOException {
+        int n = channel.read(inbox);
+        if (n < 0) {
+            fail("对手断开了连接");
+            return;
+        }
+        bytesReceived.addAndGet(n);
+        inbox.flip();
+        while (inbox.hasRemaining() && !closed) {
+            inbox.mark();
+            try {
+                dispatch(inbox);
+            } catch (BufferUnderflowException e) {
+                inbox.reset(); // 消息不完整，等待后续数据
+                break;
+            }
+        }
+        inbox.compact();
+    }
+
+    private void dispatch(ByteBuffer in) throws IOException {
+        byte type = in.get();
+        switch (type) {
+            case VersusProtocol.HELLO: {
+                int magic = in.getInt();
+                byte version = in.get();
+                if (!hosting || magic != VersusProtocol.MAGIC || version != VersusProtocol.VERSION) {
+                    throw new IOException("对手的协议不兼容");
+                }
+                synchronized (outbox) {
+                    VersusProtocol.putStart(outbox, seed, width, height, inputDelay);
+                    flushOrSchedule();
+                }
+                handler.onStart(seed, width, height, inputDelay, 0);
+                break;
+            }
+            case VersusProtocol.START: {
+                long s = in.getLong();
+                int w = VersusProtocol.getVarInt(in);
+                int h = VersusProtocol.getVarInt(in);
+                int d = VersusProtocol.getVarInt(in);
+                handler.onStart(s, w, h, d, 1);
+                break;
+            }
+            case VersusProtocol.INPUT: {
+                int frame = VersusProtocol.getVarInt(in);
+                int bits = in.get() & 0xFF;
+                handler.onInput(frame, bits);
+                break;
+            }
+            case VersusProtocol.PING: {
+                long nanos = in.getLong();
+                synchronized (outbox) {
+                    VersusProtocol.putPing(outbox, VersusProtocol.PONG, nanos);
+                    flushOrSchedule();
+                }
+                break;
+            }
+            case VersusProtocol.PONG:
+                roundTrip.record(System.nanoTime() - in.getLong());
+                break;
+            case VersusProtocol.CHECK: {
+                int frame = VersusProtocol.getVarInt(in);
+                handler.onCheck(frame, in.getLong());
+                break;
+            }
+            case VersusProtocol.BYE:
+                fail("对手退出了对战");
+                break;
+            default:
+                throw new IOException("未知的消息类型: " + type);
+        }
+    }
+
+    private void sendHello() throws IOException {
+        synchronized (outbox) {
+            VersusProtocol.putHello(outbox);
+            flushOrSchedule();
+        }
+    }
+
+    public void sendInput(int frame, int bits) {
+        synchronized (outbox) {
+            if (ensureRoom()) {
+                VersusProtocol.putInput(outbox, frame, bits);
+                send();
+            }
+        }
+    }
+
+    public void sendCheck(int frame, long hash) {
+        synchronized (outbox) {
+            if (ensureRoom()) {
+                VersusProtocol.putCheck(outbox, frame, hash);
+                send();
+            }
+        }
+    }
+
+    // 测量往返时间，对方的网络线程收到后立刻回复
+    public void sendPing() {
+        synchronized (outbox) {
+            if (ensureRoom()) {
+                VersusProtocol.putPing(outbox, VersusProtocol.PING, System.nanoTime());
+                send();
+            }
+        }
+    }
+
+    // 调用线程上的发送，出错时关闭连接而不是抛给游戏循环
+    private void send() {
+        try {
+            flushOrSchedule();
+        } catch (IOException e) {
+            fail(e.getMessage() != null ? e.getMessage() : e.toString());
+            selector.wakeup();
+        }
+    }
+
+    private boolean ensureRoom() {
+        if (closed) {
+            return false;
+        }
+        if (outbox.remaining() < VersusProtocol.MAX_MESSAGE) {
+            fail("发送缓冲区已满，对手长时间没有接收数据");
+            selector.wakeup();
+            return false;
+        }
+        return true;
+    }
+
+    // 立即尝试写出，写不完时请网络线程在可写时继续；需持有 outbox 的锁
+    private void flushOrSchedule() throws IOException {
+        if (!flushLocked()) {
+            writeRequested = true;
+            selector.wakeup();
+        }
+    }
+
+    // 非阻塞地写出发送缓冲区，全部写完返回 true；未连接时数据留在缓冲区中
+    private boolean flushLocked() throws IOException {
+        SocketChannel ch = channel;
+        if (ch == null || !ch.isConnected()) {
+            return outbox.position() == 0;
+        }
+        if (outbox.position() == 0) {
+            return true;
+        }
+        outbox.flip();
+        try {
+            bytesSent.addAndGet(ch.write(outbox));
+        } finally {
+            outbox.compact();
+        }
+        return outbox.position() == 0;
+    }
+
+    private void fail(String reason) {
+        if (closed) {
+            return;
+        }
+        closeReason = reason;
+        closed = true;
+        handler.onClosed(reason);
+    }
+
+    /**
+     * 通知对手后关闭连接
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            synchronized (outbox) {
+                try {
+                    if (outbox.remaining() >= 1) {
+                        outbox.put(VersusProtocol.BYE);
+                        flushLocked();
+                    }
+                } catch (IOException | BufferOverflowException e) {
+                    // 对手可能已经断开，无需通知
+                }
+            }
+            closeReason = "已退出";
+            closed = true;
+        }
+        selector.wakeup();
+        if (Thread.currentThread() != thread) {
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        closeChannels();
+    }
+
+    private void closeChannels() {
+        try {
+            if (server != null) {
+                server.close();
+            }
+            SocketChannel ch = channel;
+            if (ch != null) {
+                ch.close();
+            }
+            selector.close();
+        } catch (IOException e) {
+            // 关闭时的错误无需处理
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public String getCloseReason() {
+        return closeReason;
+    }
+
+    // 往返时间的分布（纳秒），只由网络线程写入
+    public Histogram getRoundTrip() {
+        return roundTrip;
+    }
+
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+}
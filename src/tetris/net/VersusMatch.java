@@ -0,0 +1,205 @@
+package tetris.net;
+
+import java.util.Random;
+
+import tetris.core.Board;
+import tetris.core.GameConfig;
+import tetris.core.GameEngine;
+import tetris.core.Tetromino;
+
+/**
+ * 双人对战的确定性模拟：两台机器各自运行同样的两个引擎（同一种子，同样的方块序列），
+ * 只交换每帧的按键位图。每帧两名玩家的输入都到齐后才推进（锁步），所以双方的状态始终一致，
+ * 垃圾行也由双方各自按同样的规则算出，不需要在网络上传送。
+ *
+ * 输入按帧记录：第 i 位表示 GameEngine.Action 第 i 个操作在这一帧按住，
+ * 位图的变化转换为引擎的按下和松开，时间取帧号对应的模拟时间，DAS/ARR 也因此是确定的。
+ *
+ * 垃圾行：锁定时一次消除 n 行送出 GARBAGE_LINES[n] 行，先抵消自己待收的垃圾行，剩下的给对手；
+ * 待收的垃圾行在下一次没有消行的锁定时从底部推入，每批一个随机的缺口列。
+ *
+ * 每名玩家的输入只由一个线程写入（本地输入由游戏线程，对手输入由网络线程），推进只在游戏线程上进行。
+ */
+public class VersusMatch {
+    public static final int PLAYERS = 2;
+    // 每帧的模拟时间，与单人模式相同
+    private static final long FRAME_NANOS = 1000000000L / GameConfig.FRAME_RATE;
+    // 输入环形缓冲区的大小，双方最多领先 2 倍输入延迟，远小于这个值
+    private static final int RING_SIZE = 1024;
+    private static final GameEngine.Action[] ACTIONS = GameEngine.Action.values();
+
+    private final GameEngine[] engines = new GameEngine[PLAYERS];
+    private final Random[] holes = new Random[PLAYERS];
+    private final int inputDelay;
+    private final int[][] inputs = new int[PLAYERS][RING_SIZE];
+    // 每名玩家已知输入的帧数：[0, available) 的输入都已写入
+    private final int[] available = new int[PLAYERS];
+    private final int[] lastBits = new int[PLAYERS];
+    private final int[] lastPieces = new int[PLAYERS];
+    private final int[] lastLines = new int[PLAYERS];
+    private final int[] pendingGarbage = new int[PLAYERS];
+    private final int[] sentGarbage = new int[PLAYERS];
+    private final int[] outgoing = new int[PLAYERS];
+    private long[] rows;
+    private int frame;
+
+    /**
+     * @param inputDelay 输入延迟帧数，至少为 1；开头的这几帧双方都没有输入
+     */
+    public VersusMatch(long seed, int width, int height, int inputDelay) {
+        if (inputDelay < 1 || inputDelay >= RING_SIZE / 4) {
+            throw new IllegalArgumentException("不支持的输入延迟: " + inputDelay);
+        }
+        this.inputDelay = inputDelay;
+        for (int p = 0; p < PLAYERS; p++) {
+            engines[p] = new GameEngine(width, height, seed);
+            holes[p] = new Random(seed * 31 + p);
+            available[p] = inputDelay;
+        }
+        rows = new long[height];
+    }
+
+    /**
+     * 写入某名玩家某一帧的按键位图，同一名玩家的帧号必须连续递增
+     */
+    public void setInput(int player, int frame, int bits) {
+        if (frame != available[player]) {
+            throw new IllegalStateException("玩家 " + player + " 的输入帧号不连续: " + frame + "，应为 "
+                    + available[player]);
+        }
+        inputs[player][frame & (RING_SIZE - 1)] = bits;
+        synchronized (this) {
+            available[player] = frame + 1; // 同步块保证网络线程写入的输入对游戏线程可见
+        }
+    }
+
+    // 两名玩家当前帧的输入是否都已到齐
+    public synchronized boolean isReady() {
+        return available[0] > frame && available[1] > frame;
+    }
+
+    // 某名玩家已知输入的帧数
+    public synchronized int getAvailable(int player) {
+        return available[player];
+    }
+
+    /**
+     * 推进一帧，调用前 isReady() 必须为 true
+     */
+    public void advance() {
+        if (!isReady()) {
+            throw new IllegalStateException("第 " + frame + " 帧的输入还没有到齐");
+        }
+        long nanos = (frame + 1) * FRAME_NANOS;
+        for (int p = 0; p < PLAYERS; p++) {
+            applyInput(p, inputs[p][frame & (RING_SIZE - 1)], nanos);
+            engines[p].frame();
+        }
+        // 先算出双方这一帧送出的垃圾行，再同时交给对方，结果与两名玩家的处理顺序无关
+        for (int p = 0; p < PLAYERS; p++) {
+            GameEngine e = engines[p];
+            int pieces = e.getPiecesPlaced() - lastPieces[p];
+            int lines = e.getLinesCleared() - lastLines[p];
+            lastPieces[p] = e.getPiecesPlaced();
+            lastLines[p] = e.getLinesCleared();
+            outgoing[p] = 0;
+            if (pieces == 0) {
+                continue;
+            }
+            if (lines > 0) {
+                int attack = GameConfig.GARBAGE_LINES[Math.min(lines, GameConfig.GARBAGE_LINES.length - 1)];
+                int cancelled = Math.min(attack, pendingGarbage[p]);
+                pendingGarbage[p] -= cancelled;
+                outgoing[p] = attack - cancelled;
+            } else if (pendingGarbage[p] > 0) {
+                e.addGarbage(pendingGarbage[p], holes[p].nextInt(e.getBoard().getWidth()));
+                pendingGarbage[p] = 0;
+            }
+        }
+        for (int p = 0; p < PLAYERS; p++) {
+            pendingGarbage[1 - p] += outgoing[p];
+            sentGarbage[p] += outgoing[p];
+        }
+        frame++;
+    }
+
+    // 按位图的变化按下或松开按键，再补发自动重复
+    private void applyInput(int player, int bits, long nanos) {
+        GameEngine e = engines[player];
+        int changed = bits ^ lastBits[player];
+        for (int i = 0; changed != 0 && i < ACTIONS.length; i++) {
+            int bit = 1 << i;
+            if ((changed & bit) != 0) {
+                if ((bits & bit) != 0) {
+                    e.press(ACTIONS[i], nanos);
+                } else {
+                    e.release(ACTIONS[i], nanos);
+                }
+            }
+        }
+        lastBits[player] = bits;
+        e.updateInput(nanos);
+    }
+
+    /**
+     * 双方状态的哈希：棋盘、活动方块、得分和待收垃圾行，用来比较两台机器是否同步
+     */
+    public long stateHash() {
+        long h = frame;
+        for (int p = 0; p < PLAYERS; p++) {
+            GameEngine e = engines[p];
+            Board board = e.getBoard();
+            if (rows.length < board.getHeight()) {
+                rows = new long[board.getHeight()];
+            }
+            board.copyRows(rows);
+            for (int r = 0; r < board.getHeight(); r++) {
+                h = h * 31 + rows[r];
+            }
+            Tetromino t = e.getCurrentTetromino();
+            h = h * 31 + t.getType();
+            h = h * 31 + t.getX();
+            h = h * 31 + t.getY();
+            h = h * 31 + t.getRotation();
+            h = h * 31 + e.getScore();
+            h = h * 31 + e.getPiecesPlaced();
+            h = h * 31 + pendingGarbage[p];
+            h = h * 31 + (e.isGameOver() ? 1 : 0);
+        }
+        return h;
+    }
+
+    // 任意一方结束时整场结束
+    public boolean isOver() {
+        return engines[0].isGameOver() || engines[1].isGameOver();
+    }
+
+    /**
+     * 获胜的玩家，同一帧双方都结束时为平局返回 -1，未结束时也返回 -1
+     */
+    public int getWinner() {
+        boolean over0 = engines[0].isGameOver(), over1 = engines[1].isGameOver();
+        return over0 == over1 ? -1 : over0 ? 1 : 0;
+    }
+
+    public GameEngine getEngine(int player) {
+        return engines[player];
+    }
+
+    // 已经推进的帧数，也是下一帧的帧号
+    public int getFrame() {
+        return frame;
+    }
+
+    public int getInputDelay() {
+        return inputDelay;
+    }
+
+    public int getPendingGarbage(int player) {
+        return pendingGarbage[player];
+    }
+
+    public int getSentGarbage(int player) {
+        return sentGarbage[player];
+    }
+}
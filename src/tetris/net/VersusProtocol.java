@@ -0,0 +1,83 @@
+package tetris.net;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 对战协议：TCP 上的二进制消息，每条消息以 1 字节类型开头，整数使用 varint：
+ * <pre>
+ * HELLO  加入方 → 创建方  int 魔数 "TVS1" | byte 版本
+ * START  创建方 → 加入方  long 种子 | varint 宽 | varint 高 | varint 输入延迟帧数（创建方为玩家 0）
+ * INPUT  varint 帧号 | byte 按键位图（第 i 位为 GameEngine.Action 第 i 个操作按住）
+ * PING   long 发送方的 nanoTime
+ * PONG   原样返回 PING 中的时间
+ * CHECK  varint 帧号 | long 该帧推进后的状态哈希，用于发现不同步
+ * BYE    无内容，对方退出
+ * </pre>
+ * 一帧的输入通常只有 2 到 4 个字节。
+ */
+final class VersusProtocol {
+    static final int MAGIC = 0x54565331;
+    static final byte VERSION = 1;
+
+    static final byte HELLO = 1;
+    static final byte START = 2;
+    static final byte INPUT = 3;
+    static final byte PING = 4;
+    static final byte PONG = 5;
+    static final byte CHECK = 6;
+    static final byte BYE = 7;
+
+    // 单条消息的最大字节数
+    static final int MAX_MESSAGE = 1 + 8 + 3 * 5 + 5;
+
+    private VersusProtocol() {
+    }
+
+    static void putHello(ByteBuffer buffer) {
+        buffer.put(HELLO).putInt(MAGIC).put(VERSION);
+    }
+
+    static void putStart(ByteBuffer buffer, long seed, int width, int height, int inputDelay) {
+        buffer.put(START).putLong(seed);
+        putVarInt(buffer, width);
+        putVarInt(buffer, height);
+        putVarInt(buffer, inputDelay);
+    }
+
+    static void putInput(ByteBuffer buffer, int frame, int bits) {
+        buffer.put(INPUT);
+        putVarInt(buffer, frame);
+        buffer.put((byte) bits);
+    }
+
+    static void putPing(ByteBuffer buffer, byte type, long nanos) {
+        buffer.put(type).putLong(nanos);
+    }
+
+    static void putCheck(ByteBuffer buffer, int frame, long hash) {
+        buffer.put(CHECK);
+        putVarInt(buffer, frame);
+        buffer.putLong(hash);
+    }
+
+    // 写入无符号变长整数，每字节 7 位，最高位表示后面还有字节
+    static void putVarInt(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    // 数据不完整时抛出 BufferUnderflowException，由调用方回退到消息开头等待更多数据
+    static int getVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+}
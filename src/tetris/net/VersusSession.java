@@ -0,0 +1,242 @@
+package tetris.net;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.locks.LockSupport;
+
+import tetris.core.GameConfig;
+import tetris.metrics.Histogram;
+
+/**
+ * 一场联网对战：把本地输入按输入延迟提前发给对手，对手的输入由网络线程写入 VersusMatch，
+ * 游戏线程定时调用 update 推进所有输入已到齐的帧。输入延迟内对手的输入通常已经到达，
+ * 所以网络往返时间小于延迟时画面不会停顿；超过时本帧等待，等待时长计入 stalls。
+ * 每隔一段帧数互相发送状态哈希，不一致时记为不同步。
+ */
+public class VersusSession implements Closeable {
+    public static final long FRAME_NANOS = 1000000000L / GameConfig.FRAME_RATE;
+    // 每次 update 最多追赶的帧数，卡顿超过这个帧数后不再追赶
+    private static final int MAX_CATCH_UP = 5;
+    private static final int CHECK_INTERVAL = 60;
+    private static final int PING_INTERVAL = 30;
+    private static final int CHECK_SLOTS = 64;
+
+    /**
+     * 本地输入，在游戏线程上调用，返回本地玩家 player 在给定帧的按键位图
+     */
+    public interface InputSource {
+        int sample(VersusMatch match, int player, int frame);
+    }
+
+    private final InputSource input;
+    private final boolean paced;
+    private final Histogram stalls = new Histogram();
+    private final long[] localChecks = new long[CHECK_SLOTS];
+    private final long[] remoteChecks = new long[CHECK_SLOTS];
+    private final int[] remoteCheckFrames = new int[CHECK_SLOTS];
+    private VersusConnection connection;
+    private volatile VersusMatch match;
+    private volatile int local;
+    private volatile Thread waiter;
+    private int frameLimit = Integer.MAX_VALUE;
+    private int sentFrame = -1;
+    private long nextFrameNanos;
+    private long stallStart;
+    private volatile boolean desynced;
+
+    /**
+     * @param paced 为 true 时按帧率推进；为 false 时只受对手输入限制，尽快推进（无界面测试）
+     */
+    private VersusSession(InputSource input, boolean paced) {
+        this.input = input;
+        this.paced = paced;
+        for (int i = 0; i < CHECK_SLOTS; i++) {
+            remoteCheckFrames[i] = -1;
+        }
+    }
+
+    public static VersusSession host(int port, long seed, int width, int height, int inputDelay,
+            InputSource input, boolean paced) throws IOException {
+        VersusSession s = new VersusSession(input, paced);
+        s.connection = VersusConnection.host(port, seed, width, height, Math.max(1, inputDelay), s.handler());
+        return s;
+    }
+
+    public static VersusSession join(String host, int port, InputSource input, boolean paced) throws IOException {
+        VersusSession s = new VersusSession(input, paced);
+        s.connection = VersusConnection.join(host, port, s.handler());
+        return s;
+    }
+
+    private VersusConnection.Handler handler() {
+        return new VersusConnection.Handler() {
+            @Override
+            public void onStart(long seed, int width, int height, int inputDelay, int player) {
+                local = player;
+                match = new VersusMatch(seed, width, height, inputDelay);
+                wake();
+            }
+
+            @Override
+            public void onInput(int frame, int bits) {
+                match.setInput(1 - local, frame, bits);
+                wake();
+            }
+
+            @Override
+            public void onCheck(int frame, long hash) {
+                int slot = frame / CHECK_INTERVAL % CHECK_SLOTS;
+                synchronized (remoteChecks) {
+                    remoteChecks[slot] = hash;
+                    remoteCheckFrames[slot] = frame;
+                }
+            }
+
+            @Override
+            public void onClosed(String reason) {
+                wake();
+            }
+        };
+    }
+
+    private void wake() {
+        Thread t = waiter;
+        if (t != null) {
+            LockSupport.unpark(t);
+        }
+    }
+
+    /**
+     * 推进到给定时间为止应完成的帧，在游戏线程上调用
+     * @return 本次推进的帧数
+     */
+    public int update(long now) {
+        VersusMatch m = match;
+        if (m == null || isFinished()) {
+            return 0;
+        }
+        if (nextFrameNanos == 0) {
+            nextFrameNanos = now;
+        }
+        int advanced = 0;
+        while (advanced < MAX_CATCH_UP && (!paced || now - nextFrameNanos >= 0) && !isFinished()) {
+            int target = m.getFrame() + m.getInputDelay();
+            if (sentFrame < target) {
+                // 本地输入在 delay 帧之后生效，对手有这么长的时间收到它
+                int bits = input.sample(m, local, target);
+                m.setInput(local, target, bits);
+                connection.sendInput(target, bits);
+                sentFrame = target;
+            }
+            if (!m.isReady()) {
+                if (stallStart == 0) {
+                    stallStart = now;
+                }
+                break;
+            }
+            if (stallStart != 0) {
+                stalls.record(now - stallStart);
+                stallStart = 0;
+            }
+            m.advance();
+            advanced++;
+            nextFrameNanos += FRAME_NANOS;
+            int frame = m.getFrame();
+            if (frame % CHECK_INTERVAL == 0) {
+                long hash = m.stateHash();
+                localChecks[frame / CHECK_INTERVAL % CHECK_SLOTS] = hash;
+                connection.sendCheck(frame, hash);
+            }
+            if (frame % PING_INTERVAL == 0) {
+                connection.sendPing();
+            }
+        }
+        if (paced && now - nextFrameNanos > MAX_CATCH_UP * FRAME_NANOS) {
+            nextFrameNanos = now; // 卡顿过后从当前时间重新计时，不连续快进
+        }
+        verifyChecks(m.getFrame());
+        return advanced;
+    }
+
+    // 比较对手已发来的、本地也已算出的状态哈希
+    private void verifyChecks(int frame) {
+        synchronized (remoteChecks) {
+            for (int i = 0; i < CHECK_SLOTS; i++) {
+                int f = remoteCheckFrames[i];
+                if (f >= 0 && f <= frame) {
+                    if (remoteChecks[i] != localChecks[i]) {
+                        desynced = true;
+                    }
+                    remoteCheckFrames[i] = -1;
+                }
+            }
+        }
+    }
+
+    /**
+     * 阻塞当前线程，直到下一帧到期、对手的输入到达或连接断开，最长 maxNanos
+     */
+    public void await(long maxNanos) {
+        // 先登记再检查，检查之后到达的输入会 unpark，不会错过
+        waiter = Thread.currentThread();
+        VersusMatch m = match;
+        long wait = maxNanos;
+        if (m != null && m.isReady()) {
+            wait = paced ? Math.min(wait, nextFrameNanos - System.nanoTime()) : 0;
+        }
+        if (wait > 0 && !connection.isClosed()) {
+            LockSupport.parkNanos(this, wait);
+        }
+        waiter = null;
+    }
+
+    // 只推进到给定帧为止，用于无界面测试时双方在同一帧比较状态
+    public void setFrameLimit(int frames) {
+        frameLimit = frames;
+    }
+
+    // 有一方结束或到达帧数上限
+    public boolean isFinished() {
+        VersusMatch m = match;
+        return m != null && (m.isOver() || m.getFrame() >= frameLimit);
+    }
+
+    public boolean isStarted() {
+        return match != null;
+    }
+
+    // 对战还没开始时为 null
+    public VersusMatch getMatch() {
+        return match;
+    }
+
+    public int getLocalPlayer() {
+        return local;
+    }
+
+    public boolean isClosed() {
+        return connection.isClosed();
+    }
+
+    public String getCloseReason() {
+        return connection.getCloseReason();
+    }
+
+    public boolean isDesynced() {
+        return desynced;
+    }
+
+    // 等待对手输入的时长分布（纳秒）
+    public Histogram getStalls() {
+        return stalls;
+    }
+
+    public VersusConnection getConnection() {
+        return connection;
+    }
+
+    @Override
+    public void close() {
+        connection.close();
+    }
+}
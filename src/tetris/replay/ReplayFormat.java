@@ -0,0 +1,83 @@
+package tetris.replay;
+
+import java.nio.ByteBuffer;
+
+import tetris.core.GameRules;
+
+/**
+ * 回放文件格式：
+ * <pre>
+ * 文件头  int 魔数 "TRPL" | byte 版本 | int 宽 | int 高 | long 种子 | byte 生成器 | int 预览长度 | long 开始时间
+ *         | 规则：int 基础速度 | double 速度指数 | double 速度系数 | int 基础分 | double 连击系数
+ *           | int 每关行数 | double 最短下落间隔
+ * 事件    varint (距上一事件的毫秒数 << 3 | 操作码)，操作码：
+ *         0-4 玩家操作（GameEngine.Action 序号），5 重力下落，6 设置关卡（后跟 varint 关卡），
+ *         7 附加记录（后跟 varint 类型）：
+ *             0 关键帧：varint 已放置方块数 | varint 长度 | EngineSnapshot
+ *             1 结束：varint 得分 | varint 行数 | varint 已放置方块数
+ *             2 连续的帧：varint 帧数（一段内最多在最后一帧锁定一个方块）
+ * </pre>
+ */
+final class ReplayFormat {
+    static final int MAGIC = 0x5452504C;
+    // 4：软降落地后不再立即锁定，旧版本的回放无法重现
+    static final byte VERSION = 4;
+    static final int RULES_SIZE = 4 + 8 + 8 + 4 + 8 + 4 + 8;
+    static final int HEADER_SIZE = 4 + 1 + 4 + 4 + 8 + 1 + 4 + 8 + RULES_SIZE;
+
+    static final int OP_BITS = 3;
+    static final int OP_TICK = 5;
+    static final int OP_LEVEL = 6;
+    static final int OP_META = 7;
+    static final int META_KEYFRAME = 0;
+    static final int META_END = 1;
+    static final int META_FRAMES = 2;
+
+    static final byte GENERATOR_RANDOM = 0;
+    static final byte GENERATOR_BAG = 1;
+
+    // 单个 varint 的最大字节数
+    static final int MAX_VARINT = 10;
+
+    private ReplayFormat() {
+    }
+
+    // 写入速度和计分规则，回放时用同样的规则重建引擎
+    static void putRules(ByteBuffer buffer, GameRules rules) {
+        buffer.putInt(rules.getBaseSpeed()).putDouble(rules.getSpeedFactor()).putDouble(rules.getSpeedMultiplier());
+        buffer.putInt(rules.getBaseScore()).putDouble(rules.getComboMultiplier()).putInt(rules.getLinesPerLevel());
+        buffer.putDouble(rules.getMinGravityDelay());
+    }
+
+    static GameRules getRules(ByteBuffer buffer) {
+        int baseSpeed = buffer.getInt();
+        double speedFactor = buffer.getDouble();
+        double speedMultiplier = buffer.getDouble();
+        int baseScore = buffer.getInt();
+        double comboMultiplier = buffer.getDouble();
+        int linesPerLevel = buffer.getInt();
+        double minGravityDelay = buffer.getDouble();
+        return new GameRules(baseSpeed, speedFactor, speedMultiplier, baseScore, comboMultiplier, linesPerLevel,
+                minGravityDelay);
+    }
+
+    // 写入无符号变长整数，每字节 7 位，最高位表示后面还有字节
+    static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static long getVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package tetris.replay;
+
+import tetris.core.BagPieceGenerator;
+import tetris.core.EngineSnapshot;
+import tetris.core.GameEngine;
+import tetris.core.GameRules;
+import tetris.core.PieceGenerator;
+import tetris.core.RandomPieceGenerator;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 无界面回放：把录制的事件依次交给一个新的引擎，不等待真实时间，尽可能快地运行。
+ * 打开文件时扫描一遍建立关键帧索引（只解码变长整数，不模拟），
+ * seekToPiece 从最近的关键帧恢复后只需模拟很少的事件。
+ * 录制中途崩溃留下的不完整文件也可以回放到最后一个完整的事件。
+ */
+public class ReplayPlayer {
+    private static final GameEngine.Action[] ACTIONS = GameEngine.Action.values();
+
+    private final ByteBuffer data;
+    private final GameEngine engine;
+    private final long seed;
+    private final long startTime;
+    private final EngineSnapshot snapshot = new EngineSnapshot();
+    private int end; // 最后一个完整记录之后的位置
+    // 关键帧索引：快照数据的位置、对应的已放置方块数和时间
+    private int keyframeCount;
+    private int[] keyframePositions = new int[16];
+    private int[] keyframePieces = new int[16];
+    private long[] keyframeMillis = new long[16];
+    private boolean hasEnd;
+    private long endScore, endLines, endPieces;
+    private long elapsedMillis;
+
+    public ReplayPlayer(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            if (data.getInt() != ReplayFormat.MAGIC || data.get() != ReplayFormat.VERSION) {
+                throw new IOException("不是回放文件或版本不支持: " + path);
+            }
+            int width = data.getInt();
+            int height = data.getInt();
+            seed = data.getLong();
+            byte generator = data.get();
+            int previewCount = data.getInt();
+            startTime = data.getLong();
+            GameRules rules = ReplayFormat.getRules(data);
+            engine = new GameEngine(width, height, seed, createGenerator(generator, seed), previewCount);
+            // 重力、锁定和计分都取决于规则，必须在第一帧之前设置
+            engine.setRules(rules);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("回放文件头不完整: " + path, e);
+        }
+        buildIndex();
+        data.position(ReplayFormat.HEADER_SIZE);
+    }
+
+    private static PieceGenerator createGenerator(byte code, long seed) throws IOException {
+        switch (code) {
+            case ReplayFormat.GENERATOR_RANDOM:
+                return new RandomPieceGenerator(seed);
+            case ReplayFormat.GENERATOR_BAG:
+                return new BagPieceGenerator(seed);
+            default:
+                throw new IOException("未知的方块生成器: " + code);
+        }
+    }
+
+    // 扫描全部记录，记下关键帧的位置和结束记录
+    private void buildIndex() {
+        long millis = 0;
+        end = data.position();
+        try {
+            while (data.hasRemaining()) {
+                long head = ReplayFormat.getVarLong(data);
+                millis += head >>> ReplayFormat.OP_BITS;
+                int op = (int) head & ((1 << ReplayFormat.OP_BITS) - 1);
+                if (op == ReplayFormat.OP_LEVEL) {
+                    ReplayFormat.getVarLong(data);
+                } else if (op == ReplayFormat.OP_META) {
+                    int kind = (int) ReplayFormat.getVarLong(data);
+                    if (kind == ReplayFormat.META_KEYFRAME) {
+                        int pieces = (int) ReplayFormat.getVarLong(data);
+                        int length = (int) ReplayFormat.getVarLong(data);
+                        if (length > data.remaining()) {
+                            break;
+                        }
+                        addKeyframe(data.position(), pieces, millis);
+                        data.position(data.position() + length);
+                    } else if (kind == ReplayFormat.META_END) {
+                        endScore = ReplayFormat.getVarLong(data);
+                        endLines = ReplayFormat.getVarLong(data);
+                        endPieces = ReplayFormat.getVarLong(data);
+                        hasEnd = true;
+                    } else if (kind == ReplayFormat.META_FRAMES) {
+                        ReplayFormat.getVarLong(data);
+                    }
+                }
+                end = data.position();
+            }
+        } catch (BufferUnderflowException e) {
+            // 文件末尾的记录不完整，回放到 end 为止
+        }
+    }
+
+    private void addKeyframe(int position, int pieces, long millis) {
+        if (keyframeCount == keyframePositions.length) {
+            int n = keyframeCount * 2;
+            keyframePositions = java.util.Arrays.copyOf(keyframePositions, n);
+            keyframePieces = java.util.Arrays.copyOf(keyframePieces, n);
+            keyframeMillis = java.util.Arrays.copyOf(keyframeMillis, n);
+        }
+        keyframePositions[keyframeCount] = position;
+        keyframePieces[keyframeCount] = pieces;
+        keyframeMillis[keyframeCount] = millis;
+        keyframeCount++;
+    }
+
+    /**
+     * 执行下一个事件（关键帧和结束记录会被跳过）
+     * @return 还有事件被执行时返回 true，回放结束时返回 false
+     */
+    public boolean next() {
+        while (data.position() < end) {
+            long head = ReplayFormat.getVarLong(data);
+            elapsedMillis += head >>> ReplayFormat.OP_BITS;
+            int op = (int) head & ((1 << ReplayFormat.OP_BITS) - 1);
+            switch (op) {
+                case ReplayFormat.OP_TICK:
+                    engine.tick();
+                    return true;
+                case ReplayFormat.OP_LEVEL:
+                    engine.setLevel((int) ReplayFormat.getVarLong(data));
+                    return true;
+                case ReplayFormat.OP_META:
+                    if (readMeta()) {
+                        return true;
+                    }
+                    break;
+                default:
+                    engine.step(ACTIONS[op]);
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    // 执行连续帧记录时返回 true，其余元数据只是跳过
+    private boolean readMeta() {
+        int kind = (int) ReplayFormat.getVarLong(data);
+        if (kind == ReplayFormat.META_FRAMES) {
+            for (long n = ReplayFormat.getVarLong(data); n > 0; n--) {
+                engine.frame();
+            }
+            return true;
+        } else if (kind == ReplayFormat.META_KEYFRAME) {
+            ReplayFormat.getVarLong(data);
+            int length = (int) ReplayFormat.getVarLong(data);
+            data.position(data.position() + length);
+        } else if (kind == ReplayFormat.META_END) {
+            data.position(end);
+        }
+        return false;
+    }
+
+    /**
+     * 回放到结束
+     * @return 执行的事件数
+     */
+    public long playToEnd() {
+        long events = 0;
+        while (next()) {
+            events++;
+        }
+        return events;
+    }
+
+    /**
+     * 跳转到放置了 pieces 个方块时的状态（超过整局时停在结束处）。
+     * 从不晚于目标的最近关键帧恢复，再模拟剩余的事件。
+     */
+    public void seekToPiece(int pieces) {
+        int k = keyframeCount - 1;
+        while (k >= 0 && keyframePieces[k] > pieces) {
+            k--;
+        }
+        int current = engine.getPiecesPlaced();
+        if (pieces < current || (k >= 0 && keyframePieces[k] > current)) {
+            if (k >= 0) {
+                data.position(keyframePositions[k]);
+                snapshot.readFrom(data);
+                engine.restoreSnapshot(snapshot);
+                elapsedMillis = keyframeMillis[k];
+            } else {
+                rewind();
+            }
+        }
+        while (engine.getPiecesPlaced() < pieces && next()) {
+            // 继续模拟
+        }
+    }
+
+    // 回到开头
+    public void rewind() {
+        engine.reset(seed);
+        data.position(ReplayFormat.HEADER_SIZE);
+        elapsedMillis = 0;
+    }
+
+    /**
+     * 回放结束后的状态是否与录制时记录的结果一致，没有结束记录（录制未正常结束）时返回 false
+     */
+    public boolean matchesRecordedResult() {
+        return hasEnd && engine.getScore() == endScore && engine.getLinesCleared() == endLines
+                && engine.getPiecesPlaced() == endPieces;
+    }
+
+    public GameEngine getEngine() {
+        return engine;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    // 录制开始时的系统时间（毫秒）
+    public long getStartTime() {
+        return startTime;
+    }
+
+    // 当前事件距离录制开始的毫秒数
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public int getKeyframeCount() {
+        return keyframeCount;
+    }
+
+    /**
+     * 命令行校验：java -cp tetris.jar tetris.replay.ReplayPlayer 回放文件...
+     * 逐个回放并与录制结果比较，有不一致时以状态码 1 退出
+     */
+    public static void main(String[] args) throws IOException {
+        boolean ok = true;
+        for (String arg : args) {
+            long start = System.nanoTime();
+            ReplayPlayer player = new ReplayPlayer(Paths.get(arg));
+            long events = player.playToEnd();
+            long micros = (System.nanoTime() - start) / 1000;
+            GameEngine e = player.getEngine();
+            boolean match = player.matchesRecordedResult();
+            ok &= match;
+            System.out.printf("%s: 事件=%d 时长=%ds 方块=%d 得分=%d 行数=%d 关键帧=%d 用时=%dus %s%n",
+                    arg, events, player.getElapsedMillis() / 1000, e.getPiecesPlaced(), e.getScore(),
+                    e.getLinesCleared(), player.getKeyframeCount(), micros, match ? "一致" : "不一致");
+        }
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package tetris.replay;
+
+import tetris.core.BagPieceGenerator;
+import tetris.core.EngineSnapshot;
+import tetris.core.GameEngine;
+import tetris.core.PieceGenerator;
+import tetris.core.RandomPieceGenerator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * 回放录制：作为引擎的事件回调，把每个操作和重力下落编码为变长的时间增量写入缓冲区，
+ * 写满（或超过一秒未写出）的缓冲区交给后台线程通过 FileChannel 写入文件，游戏线程不做 I/O，
+ * 创建目录、打开和关闭文件也都在后台线程上进行。
+ * 每放置 keyframeInterval 个方块插入一个关键帧，回放时可以直接跳转。
+ * 连续的帧合并为一条记录，方块数变化时另起一条，因此每条记录最多锁定一个方块。
+ */
+public class ReplayRecorder implements GameEngine.Listener, Closeable {
+    private static final int BUFFER_COUNT = 4;
+    private static final long FLUSH_NANOS = 1000000000L;
+    // 通知写线程退出的标记
+    private static final ByteBuffer END_OF_STREAM = ByteBuffer.allocate(0);
+
+    private final GameEngine engine;
+    private final Path path;
+    private final int keyframeInterval;
+    private final EngineSnapshot snapshot = new EngineSnapshot();
+    // 写满的缓冲区交给写线程，写完后回到空闲队列复用
+    private final BlockingQueue<ByteBuffer> pending = new ArrayBlockingQueue<>(BUFFER_COUNT + 1);
+    private final BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<>(BUFFER_COUNT);
+    private final Thread writer;
+    private ByteBuffer buffer;
+    private long lastEventNanos;
+    private long lastHandOffNanos;
+    private int nextKeyframe;
+    // 尚未写出的连续帧
+    private int pendingFrames;
+    private int pendingFramesPieces;
+    private volatile IOException failure;
+    private boolean closed;
+
+    /**
+     * 开始录制引擎从当前状态（刚 reset 之后）起的一局游戏
+     * @param keyframeInterval 每隔多少个方块插入一个关键帧
+     */
+    public ReplayRecorder(Path path, GameEngine engine, int keyframeInterval) {
+        this.engine = engine;
+        this.path = path;
+        this.keyframeInterval = keyframeInterval;
+        byte generator = generatorCode(engine.getPieceGenerator());
+
+        // 缓冲区至少能放下两个关键帧
+        engine.saveSnapshot(snapshot);
+        int size = Math.max(8192, 2 * (snapshot.encodedSize() + 4 * ReplayFormat.MAX_VARINT));
+        for (int i = 0; i < BUFFER_COUNT; i++) {
+            free.add(ByteBuffer.allocateDirect(size));
+        }
+        buffer = free.poll();
+        buffer.putInt(ReplayFormat.MAGIC).put(ReplayFormat.VERSION);
+        buffer.putInt(engine.getBoard().getWidth()).putInt(engine.getBoard().getHeight());
+        buffer.putLong(engine.getSeed()).put(generator).putInt(engine.getPreviewCount());
+        buffer.putLong(System.currentTimeMillis());
+        ReplayFormat.putRules(buffer, engine.getRules());
+        lastEventNanos = lastHandOffNanos = System.nanoTime();
+        nextKeyframe = engine.getPiecesPlaced() + keyframeInterval;
+
+        writer = new Thread(new Runnable() {
+            public void run() {
+                writeLoop();
+            }
+        }, "replay-writer");
+        writer.setDaemon(true);
+        writer.start();
+        engine.setListener(this);
+    }
+
+    private static byte generatorCode(PieceGenerator generator) {
+        if (generator instanceof RandomPieceGenerator) {
+            return ReplayFormat.GENERATOR_RANDOM;
+        } else if (generator instanceof BagPieceGenerator) {
+            return ReplayFormat.GENERATOR_BAG;
+        }
+        throw new IllegalArgumentException("回放不支持的方块生成器: " + generator.getClass().getName());
+    }
+
+    @Override
+    public synchronized void onAction(GameEngine.Action action) {
+        writeEvent(action.ordinal());
+    }
+
+    @Override
+    public synchronized void onTick() {
+        writeEvent(ReplayFormat.OP_TICK);
+    }
+
+    @Override
+    public synchronized void onFrame() {
+        if (closed) return;
+        if (pendingFrames > 0 && engine.getPiecesPlaced() != pendingFramesPieces) {
+            flushFrames();
+        }
+        if (pendingFrames == 0) {
+            checkKeyframe();
+            pendingFramesPieces = engine.getPiecesPlaced();
+        }
+        pendingFrames++;
+    }
+
+    @Override
+    public synchronized void onLevelSet(int level) {
+        writeEvent(ReplayFormat.OP_LEVEL);
+        ReplayFormat.putVarLong(buffer, level);
+    }
+
+    // 写入一个事件头，必要时先写出累积的帧和关键帧
+    private void writeEvent(int op) {
+        if (closed) return;
+
+        flushFrames();
+        checkKeyframe();
+        writeHead(op);
+    }
+
+    // 关键帧记录的是之前所有记录执行完之后的状态，所以只能在累积的帧写出之后插入
+    private void checkKeyframe() {
+        if (engine.getPiecesPlaced() >= nextKeyframe) {
+            writeKeyframe(System.nanoTime());
+        }
+    }
+
+    // 写入记录头（时间增量和操作码），调用后缓冲区至少还能放下两个 varint
+    private void writeHead(int op) {
+        long now = System.nanoTime();
+        ensure(3 * ReplayFormat.MAX_VARINT, now);
+        long deltaMillis = (now - lastEventNanos) / 1000000L;
+        lastEventNanos += deltaMillis * 1000000L;
+        ReplayFormat.putVarLong(buffer, deltaMillis << ReplayFormat.OP_BITS | op);
+    }
+
+    // 把累积的连续帧写成一条记录
+    private void flushFrames() {
+        if (pendingFrames == 0) return;
+        int frames = pendingFrames;
+        pendingFrames = 0;
+        writeHead(ReplayFormat.OP_META);
+        ReplayFormat.putVarLong(buffer, ReplayFormat.META_FRAMES);
+        ReplayFormat.putVarLong(buffer, frames);
+    }
+
+    // 在下一个事件之前记录引擎状态，时间增量为 0
+    private void writeKeyframe(long now) {
+        engine.saveSnapshot(snapshot);
+        int size = snapshot.encodedSize();
+        ensure(size + 4 * ReplayFormat.MAX_VARINT, now);
+        ReplayFormat.putVarLong(buffer, ReplayFormat.OP_META);
+        ReplayFormat.putVarLong(buffer, ReplayFormat.META_KEYFRAME);
+        ReplayFormat.putVarLong(buffer, snapshot.getPiecesPlaced());
+        ReplayFormat.putVarLong(buffer, size);
+        snapshot.writeTo(buffer);
+        nextKeyframe = snapshot.getPiecesPlaced() + keyframeInterval;
+    }
+
+    // 剩余空间不足或距上次写出超过一秒时把缓冲区交给写线程
+    private void ensure(int bytes, long now) {
+        if (buffer.remaining() < bytes || now - lastHandOffNanos > FLUSH_NANOS) {
+            handOff();
+            lastHandOffNanos = now;
+        }
+    }
+
+    private void handOff() {
+        buffer.flip();
+        try {
+            pending.put(buffer);
+            buffer = free.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("录制被中断", e);
+        }
+    }
+
+    private void writeLoop() {
+        FileChannel channel = null;
+        try {
+            Path dir = path.toAbsolutePath().getParent();
+            if (dir != null) {
+                Files.createDirectories(dir);
+            }
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            failure = e;
+        }
+        try {
+            while (true) {
+                ByteBuffer b = pending.take();
+                if (b == END_OF_STREAM) {
+                    break;
+                }
+                try {
+                    if (failure == null) {
+                        while (b.hasRemaining()) {
+                            channel.write(b);
+                        }
+                    }
+                } catch (IOException e) {
+                    failure = e; // 之后的数据直接丢弃，由 awaitWritten 报告
+                }
+                b.clear();
+                free.put(b);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 写入结束记录并通知后台线程写完剩余数据后关闭文件，不等待写入完成；
+     * 之前已经发生的写入错误在这里抛出
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        flushFrames();
+        closed = true;
+        engine.setListener(null);
+
+        ensure(5 * ReplayFormat.MAX_VARINT, System.nanoTime());
+        ReplayFormat.putVarLong(buffer, ReplayFormat.OP_META);
+        ReplayFormat.putVarLong(buffer, ReplayFormat.META_END);
+        ReplayFormat.putVarLong(buffer, engine.getScore());
+        ReplayFormat.putVarLong(buffer, engine.getLinesCleared());
+        ReplayFormat.putVarLong(buffer, engine.getPiecesPlaced());
+        handOff();
+        try {
+            pending.put(END_OF_STREAM);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * 等待 close 之后后台线程写完并关闭文件，写入出错时抛出；不要在界面线程上调用
+     */
+    public void awaitWritten() throws IOException, InterruptedException {
+        writer.join();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
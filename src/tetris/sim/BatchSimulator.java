@@ -0,0 +1,290 @@
+package tetris.sim;
+
+import tetris.ai.AutoPlayer;
+import tetris.ai.PlacementHeuristic;
+import tetris.core.GameConfig;
+import tetris.core.GameEngine;
+import tetris.core.GameRules;
+
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 批量自我对局：对 GameConfig 的速度和计分参数网格中的每一组参数，用自动玩家在所有核心上并行跑
+ * 若干局带种子的无界面游戏，汇总得分、行数、到达关卡和对局长度的分布，输出 CSV 或 JSON 报告。
+ *
+ * 对局在模拟时钟上进行：玩家每 actionMillis 毫秒执行一个操作，其间按模拟帧率补上重力和锁定延迟，
+ * 所以速度曲线会真实地影响对局。每组参数使用相同的种子序列，结果可以逐组比较。
+ *
+ * 用法：java -cp tetris.jar tetris.sim.BatchSimulator [选项]
+ * <pre>
+ *   --games N              每组参数的局数（默认 1000）
+ *   --max-pieces N         每局最多放置的方块数（默认 1000）
+ *   --action-ms N          模拟玩家每个操作的耗时（默认 120）
+ *   --speed-factor a,b     SPEED_FACTOR 取值
+ *   --speed-multiplier a,b SPEED_MULTIPLIER 取值
+ *   --combo a,b            COMBO_MULTIPLIER 取值
+ *   --lines-per-level a,b  LINES_PER_LEVEL 取值
+ *   --lookahead            自动玩家向前看一步（更强但慢得多）
+ *   --threads N            并行线程数（默认为核心数）
+ *   --out 文件             报告文件，扩展名为 .json 时输出 JSON，否则 CSV（默认 sweep.csv）
+ * </pre>
+ */
+public class BatchSimulator {
+    // 每个叶子任务连续运行的局数
+    private static final int GAMES_PER_TASK = 16;
+    private static final String[] METRICS = {"score", "lines", "level", "pieces", "seconds"};
+
+    private final int games;
+    private final int maxPieces;
+    private final int actionMillis;
+    private final boolean lookahead;
+
+    public BatchSimulator(int games, int maxPieces, int actionMillis, boolean lookahead) {
+        this.games = games;
+        this.maxPieces = maxPieces;
+        this.actionMillis = actionMillis;
+        this.lookahead = lookahead;
+    }
+
+    /**
+     * 一组参数的全部对局结果，每项指标按局保存以便计算分位数
+     */
+    public static class Result {
+        final GameRules rules;
+        final int[][] values; // [指标][局]
+
+        Result(GameRules rules, int games) {
+            this.rules = rules;
+            this.values = new int[METRICS.length][games];
+        }
+
+        // 指标 m 的分位数（0 到 1）
+        double percentile(int m, double p) {
+            int[] sorted = values[m];
+            return sorted[(int) Math.min(sorted.length - 1, Math.floor(p * sorted.length))];
+        }
+
+        double mean(int m) {
+            long sum = 0;
+            for (int v : values[m]) {
+                sum += v;
+            }
+            return values[m].length == 0 ? 0 : (double) sum / values[m].length;
+        }
+    }
+
+    /**
+     * 在 pool 上运行全部参数组合，每组 games 局
+     */
+    public List<Result> run(List<GameRules> grid, ForkJoinPool pool, AtomicLong progress) {
+        List<Result> results = new ArrayList<>();
+        for (GameRules rules : grid) {
+            results.add(new Result(rules, games));
+        }
+        pool.invoke(new SimulateTask(results, 0, (long) grid.size() * games, progress));
+        for (Result result : results) {
+            for (int[] metric : result.values) {
+                Arrays.sort(metric);
+            }
+        }
+        return results;
+    }
+
+    // 把 [lo, hi) 范围的 (参数组, 局) 二分拆开，叶子任务复用同一个引擎和自动玩家
+    private final class SimulateTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Result> results;
+        private final long lo, hi;
+        private final AtomicLong progress;
+
+        SimulateTask(List<Result> results, long lo, long hi, AtomicLong progress) {
+            this.results = results;
+            this.lo = lo;
+            this.hi = hi;
+            this.progress = progress;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > GAMES_PER_TASK) {
+                long mid = (lo + hi) >>> 1;
+                invokeAll(new SimulateTask(results, lo, mid, progress), new SimulateTask(results, mid, hi, progress));
+                return;
+            }
+            GameEngine engine = new GameEngine(0);
+            // 向前看时候选评估也拆到同一个池里
+            AutoPlayer player = new AutoPlayer(new PlacementHeuristic(), lookahead, getPool());
+            for (long i = lo; i < hi; i++) {
+                Result result = results.get((int) (i / games));
+                int game = (int) (i % games);
+                engine.setRules(result.rules);
+                engine.reset(game);
+                player.reset();
+                long millis = play(engine, player);
+                result.values[0][game] = engine.getScore();
+                result.values[1][game] = engine.getLinesCleared();
+                result.values[2][game] = engine.getLevel();
+                result.values[3][game] = engine.getPiecesPlaced();
+                result.values[4][game] = (int) (millis / 1000);
+            }
+            progress.addAndGet(hi - lo);
+        }
+    }
+
+    /**
+     * 在模拟时钟上玩一局
+     * @return 对局的模拟时长（毫秒）
+     */
+    long play(GameEngine engine, AutoPlayer player) {
+        // 时钟以微秒计，帧长不必整除毫秒
+        long clock = 0;
+        long frameMicros = 1000000L / GameConfig.FRAME_RATE;
+        long nextFrame = frameMicros;
+        while (!engine.isGameOver() && engine.getPiecesPlaced() < maxPieces) {
+            clock += actionMillis * 1000L;
+            while (clock >= nextFrame && !engine.isGameOver()) {
+                engine.frame();
+                nextFrame += frameMicros;
+            }
+            if (engine.isGameOver()) {
+                break;
+            }
+            engine.step(player.nextAction(engine));
+        }
+        return clock / 1000;
+    }
+
+    // 写出 CSV：每组参数一行，每项指标给出平均值、中位数、90 分位和最大值
+    static void writeCsv(List<Result> results, PrintWriter out) {
+        out.print("speed_factor,speed_multiplier,combo_multiplier,lines_per_level,games");
+        for (String metric : METRICS) {
+            out.printf(",%1$s_mean,%1$s_p50,%1$s_p90,%1$s_max", metric);
+        }
+        out.println();
+        for (Result r : results) {
+            out.printf(Locale.ROOT, "%s,%s,%s,%d,%d", r.rules.getSpeedFactor(), r.rules.getSpeedMultiplier(),
+                    r.rules.getComboMultiplier(), r.rules.getLinesPerLevel(), r.values[0].length);
+            for (int m = 0; m < METRICS.length; m++) {
+                out.printf(Locale.ROOT, ",%.2f,%.0f,%.0f,%.0f", r.mean(m), r.percentile(m, 0.5),
+                        r.percentile(m, 0.9), r.percentile(m, 1));
+            }
+            out.println();
+        }
+    }
+
+    static void writeJson(List<Result> results, PrintWriter out) {
+        out.println("[");
+        for (int i = 0; i < results.size(); i++) {
+            Result r = results.get(i);
+            out.printf(Locale.ROOT, "  {\"speedFactor\": %s, \"speedMultiplier\": %s, \"comboMultiplier\": %s, "
+                            + "\"linesPerLevel\": %d, \"games\": %d", r.rules.getSpeedFactor(),
+                    r.rules.getSpeedMultiplier(), r.rules.getComboMultiplier(), r.rules.getLinesPerLevel(),
+                    r.values[0].length);
+            for (int m = 0; m < METRICS.length; m++) {
+                out.printf(Locale.ROOT, ", \"%s\": {\"mean\": %.2f, \"p50\": %.0f, \"p90\": %.0f, \"max\": %.0f}",
+                        METRICS[m], r.mean(m), r.percentile(m, 0.5), r.percentile(m, 0.9), r.percentile(m, 1));
+            }
+            out.println(i + 1 < results.size() ? "}," : "}");
+        }
+        out.println("]");
+    }
+
+    private static double[] parseList(String value) {
+        String[] parts = value.split(",");
+        double[] result = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            result[i] = Double.parseDouble(parts[i].trim());
+        }
+        return result;
+    }
+
+    public static void main(String[] args) throws FileNotFoundException, InterruptedException {
+        int games = 1000;
+        int maxPieces = 1000;
+        int actionMillis = 120;
+        boolean lookahead = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String out = "sweep.csv";
+        double[] speedFactors = {GameConfig.SPEED_FACTOR};
+        double[] speedMultipliers = {GameConfig.SPEED_MULTIPLIER};
+        double[] combos = {GameConfig.COMBO_MULTIPLIER};
+        double[] linesPerLevel = {GameConfig.LINES_PER_LEVEL};
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if ("--lookahead".equals(arg)) {
+                lookahead = true;
+                continue;
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("缺少参数值: " + arg);
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "--games": games = Integer.parseInt(value); break;
+                case "--max-pieces": maxPieces = Integer.parseInt(value); break;
+                case "--action-ms": actionMillis = Integer.parseInt(value); break;
+                case "--threads": threads = Integer.parseInt(value); break;
+                case "--out": out = value; break;
+                case "--speed-factor": speedFactors = parseList(value); break;
+                case "--speed-multiplier": speedMultipliers = parseList(value); break;
+                case "--combo": combos = parseList(value); break;
+                case "--lines-per-level": linesPerLevel = parseList(value); break;
+                default: throw new IllegalArgumentException("未知选项: " + arg);
+            }
+        }
+
+        List<GameRules> grid = new ArrayList<>();
+        for (double sf : speedFactors) {
+            for (double sm : speedMultipliers) {
+                for (double c : combos) {
+                    for (double lpl : linesPerLevel) {
+                        grid.add(new GameRules(GameConfig.BASE_SPEED, sf, sm, GameConfig.BASE_SCORE, c, (int) lpl));
+                    }
+                }
+            }
+        }
+
+        final long total = (long) grid.size() * games;
+        final AtomicLong progress = new AtomicLong();
+        Thread reporter = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    while (true) {
+                        Thread.sleep(5000);
+                        System.err.printf("进度 %d/%d%n", progress.get(), total);
+                    }
+                } catch (InterruptedException e) {
+                    // 结束
+                }
+            }
+        }, "sweep-progress");
+        reporter.setDaemon(true);
+        reporter.start();
+
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        List<Result> results = new BatchSimulator(games, maxPieces, actionMillis, lookahead).run(grid, pool, progress);
+        pool.shutdown();
+        reporter.interrupt();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        try (PrintWriter writer = new PrintWriter(out)) {
+            if (out.endsWith(".json")) {
+                writeJson(results, writer);
+            } else {
+                writeCsv(results, writer);
+            }
+        }
+        System.out.printf("%d 组参数 × %d 局 = %d 局，%d 线程，用时 %.1fs（%.0f 局/秒），报告: %s%n",
+                grid.size(), games, total, threads, seconds, total / seconds, out);
+    }
+}
@@ -0,0 +1,226 @@
+package tetris.util;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+import tetris.core.Board;
+import tetris.core.Tetromino;
+
+/**
+ * 直接写像素的棋盘渲染器：棋盘画在一张 TYPE_INT_RGB 图像上，按格子把预先算好的贴图像素
+ * 逐行 arraycopy 到图像的 int[] 中，不经过 Graphics2D。每个格子记住上次写入的内容，
+ * 只有内容变化的格子才会重写，绘制时整张图像用一次 drawImage 贴出。
+ * 不依赖显示设备，可以在无界面环境下离屏渲染。
+ */
+public class RasterBoardRenderer {
+    private static final int BACKGROUND = 0x14141E;
+    private static final int GRID = 0x32323C;
+    private static final int GHOST_ALPHA = 70;
+
+    private final int columns;
+    private final int viewRows;
+    private final int cellSize;
+    private final Color[] palette;
+    private final BufferedImage image;
+    private final int[] pixels;
+    private final int stride;
+    // 贴图：0 为空格子，1..n 为实心方块，n+1..2n 为影子，每个 cellSize*cellSize 个像素
+    private final int[][] tiles;
+    // 每个视口格子的内容编号：已锁定的方块、本帧应显示的内容和图像中实际的内容（-1 表示未知）
+    private final byte[] base;
+    private final byte[] frame;
+    private final byte[] shown;
+    // 上一帧活动方块和影子覆盖的格子下标
+    private int[] overlay = new int[8];
+    private int overlayCount;
+    private Board baseSource;
+    private int baseVersion;
+    private int baseViewTop = -1;
+
+    public RasterBoardRenderer(int columns, int viewRows, int cellSize, Color[] palette) {
+        this.columns = columns;
+        this.viewRows = viewRows;
+        this.cellSize = cellSize;
+        this.palette = palette.clone();
+        image = new BufferedImage(columns * cellSize + 1, viewRows * cellSize + 1, BufferedImage.TYPE_INT_RGB);
+        pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        stride = image.getWidth();
+        tiles = buildTiles(cellSize, this.palette);
+        base = new byte[columns * viewRows];
+        frame = new byte[columns * viewRows];
+        shown = new byte[columns * viewRows];
+        Arrays.fill(shown, (byte) -1);
+
+        // 最右一列和最下一行的网格线不属于任何格子，只画一次
+        for (int y = 0; y < image.getHeight(); y++) {
+            pixels[y * stride + stride - 1] = GRID;
+        }
+        Arrays.fill(pixels, (image.getHeight() - 1) * stride, pixels.length, GRID);
+    }
+
+    private static int[][] buildTiles(int cellSize, Color[] palette) {
+        int n = palette.length;
+        int[][] tiles = new int[2 * n + 1][];
+        int[] empty = new int[cellSize * cellSize];
+        for (int y = 0; y < cellSize; y++) {
+            for (int x = 0; x < cellSize; x++) {
+                empty[y * cellSize + x] = x == 0 || y == 0 ? GRID : BACKGROUND;
+            }
+        }
+        tiles[0] = empty;
+        // 与 TileAtlas 相同的样式：主体留出右下一像素的网格缝，左上亮边，右下暗边
+        int block = cellSize - 1;
+        for (int i = 0; i < n; i++) {
+            int color = palette[i].getRGB() & 0xFFFFFF;
+            int light = palette[i].brighter().getRGB() & 0xFFFFFF;
+            int dark = palette[i].darker().getRGB() & 0xFFFFFF;
+            int[] solid = empty.clone();
+            int[] ghost = empty.clone();
+            for (int y = 0; y < block; y++) {
+                for (int x = 0; x < block; x++) {
+                    int p = y * cellSize + x;
+                    if (x == block - 1 || y == block - 1) {
+                        solid[p] = dark;
+                    } else if (x == 0 || y == 0) {
+                        solid[p] = light;
+                    } else {
+                        solid[p] = color;
+                    }
+                    ghost[p] = blend(color, empty[p], GHOST_ALPHA);
+                }
+            }
+            tiles[1 + i] = solid;
+            tiles[1 + n + i] = ghost;
+        }
+        return tiles;
+    }
+
+    // 按 alpha（0-255）把 src 叠加到 dst 上
+    private static int blend(int src, int dst, int alpha) {
+        int result = 0;
+        for (int shift = 0; shift < 24; shift += 8) {
+            int s = src >>> shift & 0xFF;
+            int d = dst >>> shift & 0xFF;
+            result |= (s * alpha + d * (255 - alpha) + 127) / 255 << shift;
+        }
+        return result;
+    }
+
+    /**
+     * 渲染器是否仍然适用于给定的视口尺寸、格子大小和调色板
+     */
+    public boolean matches(int columns, int viewRows, int cellSize, Color[] palette) {
+        return this.columns == columns && this.viewRows == viewRows && this.cellSize == cellSize
+                && Arrays.equals(this.palette, palette);
+    }
+
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    /**
+     * 把视口内的棋盘、影子和活动方块更新到图像中
+     * @param board 棋盘，游戏开始前为 null
+     * @param viewTop 视口第一行对应的棋盘行
+     * @param piece 活动方块，没有时为 null
+     * @param ghostY 影子（落点）的 y 坐标，与 piece.getY() 相同时不画影子
+     * @return 本次重写的格子数
+     */
+    public int render(Board board, int viewTop, Tetromino piece, int ghostY) {
+        boolean full = board != baseSource || viewTop != baseViewTop
+                || (board != null && board.getVersion() != baseVersion);
+        if (full) {
+            rebuildBase(board, viewTop);
+            System.arraycopy(base, 0, frame, 0, base.length);
+        } else {
+            for (int i = 0; i < overlayCount; i++) {
+                frame[overlay[i]] = base[overlay[i]];
+            }
+        }
+
+        // 需要检查的格子：上一帧的覆盖格子仍在 overlay 的前 oldCount 项，新的追加在后面
+        int oldCount = full ? 0 : overlayCount;
+        int count = oldCount;
+        if (piece != null) {
+            if (overlay.length < oldCount + 2 * piece.getCellCount()) {
+                overlay = Arrays.copyOf(overlay, oldCount + 2 * piece.getCellCount());
+            }
+            int code = (piece.getType() - 1) % palette.length + 1;
+            if (ghostY != piece.getY()) {
+                count = addOverlay(piece, ghostY, viewTop, (byte) (code + palette.length), count);
+            }
+            count = addOverlay(piece, piece.getY(), viewTop, (byte) code, count);
+        }
+
+        int updated = 0;
+        if (full) {
+            for (int i = 0; i < frame.length; i++) {
+                updated += update(i);
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                updated += update(overlay[i]);
+            }
+        }
+        // 只保留本帧的覆盖格子
+        System.arraycopy(overlay, oldCount, overlay, 0, count - oldCount);
+        overlayCount = count - oldCount;
+        return updated;
+    }
+
+    private int addOverlay(Tetromino piece, int pieceY, int viewTop, byte code, int count) {
+        for (int i = 0; i < piece.getCellCount(); i++) {
+            int x = piece.getX() + piece.getCellX(i);
+            int y = pieceY + piece.getCellY(i) - viewTop;
+            if (x >= 0 && x < columns && y >= 0 && y < viewRows) {
+                int index = y * columns + x;
+                frame[index] = code;
+                overlay[count++] = index;
+            }
+        }
+        return count;
+    }
+
+    // 重新读取视口内已锁定的方块，活动区域以上和空行直接跳过
+    private void rebuildBase(Board board, int viewTop) {
+        Arrays.fill(base, (byte) 0);
+        if (board != null) {
+            int first = Math.max(viewTop, board.getHeight() - board.getActiveRows());
+            int last = Math.min(board.getHeight(), viewTop + viewRows);
+            int width = Math.min(columns, board.getWidth());
+            for (int y = first; y < last; y++) {
+                if (board.isRowEmpty(y)) {
+                    continue;
+                }
+                int row = (y - viewTop) * columns;
+                for (int x = 0; x < width; x++) {
+                    int cell = board.getCell(x, y);
+                    if (cell != 0) {
+                        base[row + x] = (byte) ((cell - 1) % palette.length + 1);
+                    }
+                }
+            }
+            baseVersion = board.getVersion();
+        }
+        baseSource = board;
+        baseViewTop = viewTop;
+    }
+
+    // 格子内容与图像中不同时把贴图逐行复制过去
+    private int update(int index) {
+        byte code = frame[index];
+        if (shown[index] == code) {
+            return 0;
+        }
+        shown[index] = code;
+        int[] tile = tiles[code];
+        int offset = (index / columns) * cellSize * stride + (index % columns) * cellSize;
+        for (int y = 0; y < cellSize; y++) {
+            System.arraycopy(tile, y * cellSize, pixels, offset, cellSize);
+            offset += stride;
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,77 @@
+package tetris.util;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * 方块贴图集：按给定格子大小为每种方块类型预先绘制一个带立体边框的贴图，
+ * 以及一个半透明的影子贴图。绘制时每格只需一次 drawImage，不再每帧创建 Color 对象。
+ */
+public class TileAtlas {
+    private final int cellSize;
+    private final Color[] palette;
+    private final BufferedImage image; // 第一行为实心贴图，第二行为影子贴图
+
+    public TileAtlas(int cellSize, Color[] palette) {
+        this.cellSize = cellSize;
+        this.palette = palette.clone();
+        this.image = new BufferedImage(cellSize * palette.length, cellSize * 2, BufferedImage.TYPE_INT_ARGB);
+
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        int blockSize = cellSize - 1;
+        for (int i = 0; i < palette.length; i++) {
+            Color color = palette[i];
+            int xPos = i * cellSize;
+
+            // 主体填充
+            g.setColor(color);
+            g.fillRect(xPos, 0, blockSize, blockSize);
+
+            // 亮边（左上）
+            g.setColor(color.brighter());
+            g.drawLine(xPos, 0, xPos + blockSize - 1, 0); // 上边
+            g.drawLine(xPos, 0, xPos, blockSize - 1); // 左边
+
+            // 暗边（右下）
+            g.setColor(color.darker());
+            g.drawLine(xPos + blockSize - 1, 0, xPos + blockSize - 1, blockSize - 1); // 右边
+            g.drawLine(xPos, blockSize - 1, xPos + blockSize - 1, blockSize - 1); // 下边
+
+            // 影子贴图
+            g.setColor(new Color(color.getRed(), color.getGreen(), color.getBlue(), 70));
+            g.fillRect(xPos, cellSize, blockSize, blockSize);
+        }
+        g.dispose();
+    }
+
+    /**
+     * 贴图集是否仍然适用于给定的格子大小和调色板
+     */
+    public boolean matches(int cellSize, Color[] palette) {
+        return this.cellSize == cellSize && Arrays.equals(this.palette, palette);
+    }
+
+    public int getCellSize() {
+        return cellSize;
+    }
+
+    // 在像素坐标 (x, y) 处绘制某种类型的方块
+    public void drawTile(Graphics g, int type, int x, int y) {
+        draw(g, type, x, y, 0);
+    }
+
+    // 在像素坐标 (x, y) 处绘制某种类型的影子方块
+    public void drawGhost(Graphics g, int type, int x, int y) {
+        draw(g, type, x, y, cellSize);
+    }
+
+    private void draw(Graphics g, int type, int x, int y, int sy) {
+        int sx = ((type - 1) % palette.length) * cellSize;
+        g.drawImage(image, x, y, x + cellSize, y + cellSize, sx, sy, sx + cellSize, sy + cellSize, null);
+    }
+}
@@ -0,0 +1,76 @@
+package tetris.util;
+
+import java.util.Arrays;
+
+/**
+ * 按时间插值的动画时间轴：固定数量的轨道，每条轨道同时只有一个动画，重新开始会替换旧的。
+ * 进度按调用方传入的纳秒时间计算，不使用定时器和 sleep，也不分配内存；
+ * 绘制线程每帧根据进度插值，逻辑线程只负责开始和取消。
+ */
+public class Timeline {
+    private final long[] starts;
+    private final long[] durations;
+    private final boolean[] running;
+    private final boolean[] holds;
+
+    public Timeline(int tracks) {
+        starts = new long[tracks];
+        durations = new long[tracks];
+        running = new boolean[tracks];
+        holds = new boolean[tracks];
+    }
+
+    /**
+     * 在轨道上开始一个动画
+     * @param hold 为 true 时播放完停在最后一帧，直到 cancel；否则播放完自动结束
+     */
+    public synchronized void start(int track, long now, long durationNanos, boolean hold) {
+        starts[track] = now;
+        durations[track] = Math.max(1, durationNanos);
+        holds[track] = hold;
+        running[track] = true;
+    }
+
+    public synchronized void cancel(int track) {
+        running[track] = false;
+    }
+
+    public synchronized void cancelAll() {
+        Arrays.fill(running, false);
+    }
+
+    // 轨道上的动画是否需要绘制（包括停在最后一帧的）
+    public synchronized boolean isActive(int track, long now) {
+        return running[track] && (holds[track] || now - starts[track] < durations[track]);
+    }
+
+    /**
+     * 是否有动画还在变化中，停在最后一帧的动画不算，用来决定是否需要继续逐帧重绘
+     */
+    public synchronized boolean isAnimating(long now) {
+        for (int i = 0; i < running.length; i++) {
+            if (running[i] && now - starts[i] < durations[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // 线性进度，0 到 1
+    public synchronized float progress(int track, long now) {
+        if (!running[track]) {
+            return 1;
+        }
+        return Math.max(0, Math.min(1, (float) (now - starts[track]) / durations[track]));
+    }
+
+    public synchronized long getStartNanos(int track) {
+        return starts[track];
+    }
+
+    // 缓出：开始快结束慢
+    public static float easeOut(float t) {
+        float u = 1 - t;
+        return 1 - u * u * u;
+    }
+}
@@ -0,0 +1,100 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.CardLayout;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+import java.awt.image.BufferedImage;
+import java.lang.reflect.Field;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.JComponent;
+import javax.swing.JPanel;
+import javax.swing.RepaintManager;
+import javax.swing.SwingUtilities;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import tetris.core.GameConfig;
+import tetris.core.GameEngine;
+import tetris.core.HighScoreStore;
+
+/**
+ * 被动渲染模式下的脏区域：像素渲染时方块左移一格只应重绘方块（含影子）的包围盒，而不是整个棋盘
+ */
+class GamePanelRepaintTest {
+    @TempDir
+    Path dir;
+
+    // 只记录 repaint 请求的区域，不安排真正的绘制
+    static class RecordingRepaintManager extends RepaintManager {
+        final List<Rectangle> regions = new ArrayList<>();
+
+        @Override
+        public void addDirtyRegion(JComponent c, int x, int y, int w, int h) {
+            regions.add(new Rectangle(x, y, w, h));
+        }
+    }
+
+    @Test
+    void oneCellMoveRepaintsOnlyPieceBounds() throws Exception {
+        HighScoreStore highScores = new HighScoreStore(dir.resolve("highscores.txt"), GameConfig.HIGH_SCORE_COUNT);
+        RecordingRepaintManager recorder = new RecordingRepaintManager();
+        int[] moved = new int[1];
+        SwingUtilities.invokeAndWait(() -> {
+            GamePanel panel = new GamePanel(null, new JPanel(new CardLayout()), highScores);
+            panel.setSize(panel.getPreferredSize());
+            panel.setRasterRendering(true);
+            panel.startGame();
+            GameEngine engine = engine(panel);
+            BufferedImage image = new BufferedImage(panel.getWidth(), panel.getHeight(), BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = image.createGraphics();
+            panel.paint(g);
+            g.dispose();
+
+            // 同一个 EDT 任务内完成，重力定时器不会插进来
+            RepaintManager saved = RepaintManager.currentManager(panel);
+            RepaintManager.setCurrentManager(recorder);
+            try {
+                int x = engine.getCurrentTetromino().getX();
+                // 无显示环境下没有焦点，直接交给面板的按键监听器
+                KeyEvent left = new KeyEvent(panel, KeyEvent.KEY_PRESSED, System.currentTimeMillis(), 0,
+                        KeyEvent.VK_LEFT, KeyEvent.CHAR_UNDEFINED);
+                for (KeyListener listener : panel.getKeyListeners()) {
+                    listener.keyPressed(left);
+                }
+                moved[0] = x - engine.getCurrentTetromino().getX();
+            } finally {
+                RepaintManager.setCurrentManager(saved);
+                panel.togglePause();
+            }
+        });
+
+        assertEquals(1, moved[0], "方块应左移一格");
+        assertFalse(recorder.regions.isEmpty(), "移动后应请求重绘");
+        Rectangle union = new Rectangle(recorder.regions.get(0));
+        for (Rectangle r : recorder.regions) {
+            union.add(r);
+        }
+        // 旧包围盒和新包围盒的并集最多 5 列宽，整个棋盘有 BOARD_WIDTH 列
+        int cell = GameConfig.CELL_SIZE;
+        assertTrue(union.width <= 5 * cell + 2, "重绘区域过宽: " + recorder.regions);
+        assertTrue(union.width < GameConfig.BOARD_WIDTH * cell, "重绘了整个棋盘: " + recorder.regions);
+    }
+
+    private static GameEngine engine(GamePanel panel) {
+        try {
+            Field field = GamePanel.class.getDeclaredField("engine");
+            field.setAccessible(true);
+            return (GameEngine) field.get(panel);
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
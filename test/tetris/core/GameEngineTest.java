@@ -0,0 +1,35 @@
+package tetris.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * 锁定延迟：落地的方块在 LOCK_DELAY_FRAMES 帧后才锁定，软降不能跳过
+ */
+class GameEngineTest {
+    @Test
+    void softDropOnGroundedPieceWaitsForLockDelay() {
+        GameEngine engine = new GameEngine(10, 20, 42L);
+        engine.setRules(GameRules.TWENTY_G);
+        engine.reset(42L);
+
+        // 20G 下第一帧方块就落到底
+        assertFalse(engine.frame());
+        assertEquals(0, engine.getCurrentTetromino().dropDistance(engine.getBoard()));
+
+        assertFalse(engine.step(GameEngine.Action.SOFT_DROP));
+        assertEquals(0, engine.getPiecesPlaced());
+
+        int frames = 1;
+        while (!engine.frame()) {
+            engine.step(GameEngine.Action.SOFT_DROP);
+            frames++;
+            assertTrue(frames <= GameConfig.LOCK_DELAY_FRAMES, "锁定延迟过后仍未锁定");
+        }
+        assertEquals(GameConfig.LOCK_DELAY_FRAMES, frames + 1);
+        assertEquals(1, engine.getPiecesPlaced());
+    }
+}
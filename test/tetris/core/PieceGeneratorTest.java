@@ -0,0 +1,83 @@
+package tetris.core;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * 方块序列必须由种子唯一决定：回放和联网对战都依赖这一点
+ */
+class PieceGeneratorTest {
+    private static final int COUNT = 700;
+
+    @Test
+    void sameSeedGivesSameSequence() {
+        assertArrayEquals(draw(new RandomPieceGenerator(7L), COUNT), draw(new RandomPieceGenerator(7L), COUNT));
+        assertArrayEquals(draw(new BagPieceGenerator(7L), COUNT), draw(new BagPieceGenerator(7L), COUNT));
+    }
+
+    @Test
+    void resetRestartsSequence() {
+        for (PieceGenerator generator : new PieceGenerator[] {
+                new RandomPieceGenerator(11L), new BagPieceGenerator(11L) }) {
+            int[] first = draw(generator, COUNT);
+            // 停在袋子中间再 reset，不能带上上一袋的剩余
+            generator.next();
+            generator.next();
+            generator.reset(11L);
+            assertArrayEquals(first, draw(generator, COUNT), generator.getClass().getSimpleName());
+        }
+    }
+
+    @Test
+    void randomGeneratorStaysInRange() {
+        for (int type : draw(new RandomPieceGenerator(3L), COUNT)) {
+            assertTrue(type >= 1 && type <= ShapeTable.TYPE_COUNT, "方块类型越界: " + type);
+        }
+    }
+
+    @Test
+    void everyBagIsPermutationOfAllTypes() {
+        int[] types = draw(new BagPieceGenerator(5L), COUNT);
+        int[] expected = new int[ShapeTable.TYPE_COUNT];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = i + 1;
+        }
+        for (int start = 0; start < types.length; start += ShapeTable.TYPE_COUNT) {
+            int[] bag = Arrays.copyOfRange(types, start, start + ShapeTable.TYPE_COUNT);
+            Arrays.sort(bag);
+            assertArrayEquals(expected, bag, "第 " + start / ShapeTable.TYPE_COUNT + " 袋");
+        }
+    }
+
+    @Test
+    void restoreReproducesPreview() {
+        PieceQueue queue = new PieceQueue(new BagPieceGenerator(0L), 5);
+        queue.reset(99L);
+        for (int i = 0; i < 23; i++) {
+            queue.take();
+        }
+
+        PieceQueue restored = new PieceQueue(new BagPieceGenerator(0L), 5);
+        restored.restore(99L, queue.getDrawnCount());
+        assertEquals(queue.getDrawnCount(), restored.getDrawnCount());
+        for (int i = 0; i < queue.length(); i++) {
+            assertEquals(queue.peek(i), restored.peek(i), "预览第 " + i + " 个");
+        }
+        for (int i = 0; i < 50; i++) {
+            assertEquals(queue.take(), restored.take());
+        }
+    }
+
+    private static int[] draw(PieceGenerator generator, int count) {
+        int[] types = new int[count];
+        for (int i = 0; i < count; i++) {
+            types[i] = generator.next();
+        }
+        return types;
+    }
+}
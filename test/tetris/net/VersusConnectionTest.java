@@ -0,0 +1,125 @@
+package tetris.net;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * 消息被 TCP 拆开时，read 要回退到消息开头，等后续数据到达后再解析
+ */
+class VersusConnectionTest {
+    private static final long TIMEOUT_NANOS = 5000000000L;
+
+    @Test
+    void messagesSplitAcrossReadsAreParsedWhole() throws Exception {
+        List<String> received = new ArrayList<>();
+        VersusConnection.Handler handler = new VersusConnection.Handler() {
+            @Override
+            public void onStart(long seed, int width, int height, int inputDelay, int local) {
+                record(received, "start " + seed + " " + width + " " + height + " " + inputDelay + " " + local);
+            }
+
+            @Override
+            public void onInput(int frame, int bits) {
+                record(received, "input " + frame + " " + bits);
+            }
+
+            @Override
+            public void onCheck(int frame, long hash) {
+                record(received, "check " + frame + " " + hash);
+            }
+
+            @Override
+            public void onClosed(String reason) {
+                record(received, "closed " + reason);
+            }
+        };
+
+        // 测试自己扮演创建方，逐字节发送，每个字节都等对方读到后再发下一个
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            int port = ((InetSocketAddress) server.getLocalAddress()).getPort();
+            VersusConnection connection = VersusConnection.join("127.0.0.1", port, handler);
+            try (SocketChannel peer = server.accept()) {
+                ByteBuffer hello = ByteBuffer.allocate(6);
+                while (hello.hasRemaining()) {
+                    if (peer.read(hello) < 0) {
+                        throw new IOException("连接在 HELLO 之前断开");
+                    }
+                }
+                hello.flip();
+                assertEquals(VersusProtocol.HELLO, hello.get());
+                assertEquals(VersusProtocol.MAGIC, hello.getInt());
+                assertEquals(VersusProtocol.VERSION, hello.get());
+
+                ByteBuffer out = ByteBuffer.allocate(256);
+                VersusProtocol.putStart(out, 123456789012L, 10, 20, 3);
+                VersusProtocol.putInput(out, 3, 0x11);
+                VersusProtocol.putInput(out, 200000, 0x04);
+                VersusProtocol.putCheck(out, 300, -2L);
+                out.flip();
+                long sent = 0;
+                while (out.hasRemaining()) {
+                    ByteBuffer one = out.slice();
+                    one.limit(1);
+                    while (one.hasRemaining()) {
+                        peer.write(one);
+                    }
+                    out.position(out.position() + 1);
+                    sent++;
+                    awaitReceived(connection, sent);
+                }
+                awaitCount(received, 4);
+            } finally {
+                connection.close();
+            }
+        }
+
+        synchronized (received) {
+            assertEquals(4, received.size(), received.toString());
+            assertEquals("start 123456789012 10 20 3 1", received.get(0));
+            assertEquals("input 3 17", received.get(1));
+            assertEquals("input 200000 4", received.get(2));
+            assertEquals("check 300 -2", received.get(3));
+        }
+    }
+
+    private static void record(List<String> received, String event) {
+        synchronized (received) {
+            received.add(event);
+        }
+    }
+
+    private static void awaitReceived(VersusConnection connection, long bytes) throws InterruptedException {
+        long deadline = System.nanoTime() + TIMEOUT_NANOS;
+        while (connection.getBytesReceived() < bytes) {
+            assertFalse(connection.isClosed(), connection.getCloseReason());
+            assertTrue(System.nanoTime() < deadline, "第 " + bytes + " 个字节没有被读到");
+            Thread.sleep(1);
+        }
+    }
+
+    private static void awaitCount(List<String> received, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TIMEOUT_NANOS;
+        while (true) {
+            synchronized (received) {
+                if (received.size() >= count) {
+                    return;
+                }
+            }
+            assertTrue(System.nanoTime() < deadline, "消息没有全部解析");
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package tetris.net;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * varint 编码：写入后原样读回，字节数符合每字节 7 位，数据不完整时抛出 BufferUnderflowException
+ */
+class VersusProtocolTest {
+    // 每组为 {值, 编码后的字节数}，负数按无符号处理，占 5 个字节
+    private static final int[][] VALUES = {
+        {0, 1}, {1, 1}, {127, 1}, {128, 2}, {300, 2}, {16383, 2}, {16384, 3}, {2097151, 3}, {2097152, 4},
+        {268435455, 4}, {268435456, 5}, {Integer.MAX_VALUE, 5}, {-1, 5}, {Integer.MIN_VALUE, 5}
+    };
+
+    @Test
+    void varIntRoundTrip() {
+        ByteBuffer buffer = ByteBuffer.allocate(VALUES.length * 5);
+        for (int[] v : VALUES) {
+            int start = buffer.position();
+            VersusProtocol.putVarInt(buffer, v[0]);
+            assertEquals(v[1], buffer.position() - start, "编码长度 " + v[0]);
+        }
+        buffer.flip();
+        for (int[] v : VALUES) {
+            assertEquals(v[0], VersusProtocol.getVarInt(buffer));
+        }
+        assertEquals(0, buffer.remaining());
+    }
+
+    @Test
+    void truncatedVarIntUnderflows() {
+        ByteBuffer buffer = ByteBuffer.allocate(5);
+        VersusProtocol.putVarInt(buffer, 300000);
+        buffer.flip();
+        for (int length = 0; length < buffer.limit(); length++) {
+            ByteBuffer partial = buffer.duplicate();
+            partial.limit(length);
+            assertThrows(BufferUnderflowException.class, () -> VersusProtocol.getVarInt(partial));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package tetris.net;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+
+import org.junit.jupiter.api.Test;
+
+import tetris.core.GameConfig;
+
+/**
+ * 两个会话在本机回环连接上由自动玩家锁步对战，期间互相送出垃圾行，
+ * 到帧数上限时双方的状态哈希必须相同，且没有发现不同步
+ */
+class VersusSessionTest {
+    private static final int FRAMES = 3600;
+    private static final long TIMEOUT_NANOS = 60000000000L;
+
+    @Test
+    void loopbackMatchStaysInSync() throws Exception {
+        int port;
+        try (ServerSocket probe = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            port = probe.getLocalPort();
+        }
+        VersusSession host = VersusSession.host(port, 20240601L, GameConfig.BOARD_WIDTH, GameConfig.BOARD_HEIGHT,
+                GameConfig.INPUT_DELAY_FRAMES, new VersusCli.BotInput(0), false);
+        VersusSession guest = VersusSession.join("127.0.0.1", port, new VersusCli.BotInput(0), false);
+        host.setFrameLimit(FRAMES);
+        guest.setFrameLimit(FRAMES);
+
+        // 每个会话由自己的线程推进，与两台机器上的游戏线程相同
+        final Throwable[] guestError = new Throwable[1];
+        Thread guestThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    play(guest);
+                } catch (Throwable t) {
+                    guestError[0] = t;
+                }
+            }
+        }, "versus-guest");
+        guestThread.start();
+        try {
+            play(host);
+            guestThread.join(TIMEOUT_NANOS / 1000000L);
+            assertFalse(guestThread.isAlive(), "加入方没有推进到终点");
+            if (guestError[0] != null) {
+                throw new AssertionError("加入方出错", guestError[0]);
+            }
+        } finally {
+            host.close();
+            guest.close();
+        }
+
+        VersusMatch a = host.getMatch();
+        VersusMatch b = guest.getMatch();
+        assertEquals(0, host.getLocalPlayer());
+        assertEquals(1, guest.getLocalPlayer());
+        assertEquals(a.getFrame(), b.getFrame());
+        assertTrue(a.getFrame() == FRAMES || a.isOver(), "对战提前停止于第 " + a.getFrame() + " 帧");
+        assertEquals(a.stateHash(), b.stateHash());
+        assertFalse(host.isDesynced());
+        assertFalse(guest.isDesynced());
+        for (int p = 0; p < VersusMatch.PLAYERS; p++) {
+            assertEquals(a.getSentGarbage(p), b.getSentGarbage(p));
+            assertEquals(a.getPendingGarbage(p), b.getPendingGarbage(p));
+        }
+        assertTrue(a.getSentGarbage(0) + a.getSentGarbage(1) > 0, "对战中没有送出垃圾行，测试没有覆盖垃圾行");
+    }
+
+    private static void play(VersusSession session) throws IOException {
+        long deadline = System.nanoTime() + TIMEOUT_NANOS;
+        while (!session.isFinished()) {
+            if (session.isClosed() && (session.getMatch() == null || !session.getMatch().isReady())) {
+                fail("连接已断开: " + session.getCloseReason());
+            }
+            if (System.nanoTime() - deadline > 0) {
+                fail("对战超时，停在第 " + (session.getMatch() != null ? session.getMatch().getFrame() : -1) + " 帧");
+            }
+            session.update(System.nanoTime());
+            session.await(VersusSession.FRAME_NANOS);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package tetris.replay;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import tetris.ai.AutoPlayer;
+import tetris.ai.PlacementHeuristic;
+import tetris.core.GameEngine;
+import tetris.core.GameRules;
+
+/**
+ * 录制一局非默认规则的游戏，回放后必须得到完全相同的结果
+ */
+class ReplayRoundTripTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void twentyGGameReplaysToSameState() throws Exception {
+        GameEngine engine = new GameEngine(10, 20, 12345L);
+        engine.setRules(GameRules.TWENTY_G);
+        engine.reset(12345L);
+        Path file = dir.resolve("twenty-g.trp");
+        ReplayRecorder recorder = new ReplayRecorder(file, engine, 5);
+
+        // 自动玩家每隔几帧执行一步，其余帧只有 20G 重力和锁定延迟
+        AutoPlayer player = new AutoPlayer(new PlacementHeuristic(), false, ForkJoinPool.commonPool());
+        for (int frame = 0; frame < 20000 && !engine.isGameOver() && engine.getPiecesPlaced() < 150; frame++) {
+            if (frame % 3 == 0) {
+                engine.step(player.nextAction(engine));
+            }
+            engine.frame();
+        }
+        recorder.close();
+        recorder.awaitWritten();
+        assertTrue(engine.getPiecesPlaced() > 20, "录制的一局太短");
+
+        ReplayPlayer replay = new ReplayPlayer(file);
+        assertEquals(GameRules.TWENTY_G.getMinGravityDelay(), replay.getEngine().getRules().getMinGravityDelay());
+        replay.playToEnd();
+        GameEngine replayed = replay.getEngine();
+        assertTrue(replay.matchesRecordedResult());
+        assertEquals(engine.getScore(), replayed.getScore());
+        assertEquals(engine.getLinesCleared(), replayed.getLinesCleared());
+        assertEquals(engine.getPiecesPlaced(), replayed.getPiecesPlaced());
+        assertEquals(engine.isGameOver(), replayed.isGameOver());
+        assertArrayEquals(rows(engine), rows(replayed));
+        assertTrue(Files.size(file) > ReplayFormat.HEADER_SIZE);
+    }
+
+    private static long[] rows(GameEngine engine) {
+        long[] rows = new long[engine.getBoard().getHeight()];
+        engine.getBoard().copyRows(rows);
+        return rows;
+    }
+}